@@ -0,0 +1,121 @@
+package ru.pobopo.weather.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.pobopo.weather.util.EnvUtils;
+
+/**
+ * Caches auth service verdicts. Entries are keyed by an HMAC of login and password with a per-process
+ * random key, so credentials are never kept in memory as plain text. Successful and failed checks
+ * have separate time to live.
+ */
+@Slf4j
+@Component
+public class AuthResultCache {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_POOL_SIZE = 64;
+
+    private final Cache<String, Boolean> cache;
+    private final SecretKeySpec secretKey;
+    /**
+     * Initialized instances shared by all threads. A thread local would create one per request thread,
+     * which with virtual threads is one per request.
+     */
+    private final BlockingQueue<Mac> macPool = new ArrayBlockingQueue<>(MAC_POOL_SIZE);
+
+    public AuthResultCache(MeterRegistry meterRegistry) {
+        long maxSize = EnvUtils.getLong("AUTH_CACHE_SIZE", 10_000);
+        Duration positiveTtl = Duration.ofSeconds(EnvUtils.getLong("AUTH_CACHE_POSITIVE_TTL_SECONDS", 300));
+        Duration negativeTtl = Duration.ofSeconds(EnvUtils.getLong("AUTH_CACHE_NEGATIVE_TTL_SECONDS", 30));
+        log.info("Auth cache size {}, positive ttl {}, negative ttl {}", maxSize, positiveTtl, negativeTtl);
+
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        secretKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new VerdictExpiry(positiveTtl.toNanos(), negativeTtl.toNanos()))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "auth");
+    }
+
+    public Boolean get(String credentialsKey) {
+        return cache.getIfPresent(credentialsKey);
+    }
+
+    public void put(String credentialsKey, boolean verdict) {
+        cache.put(credentialsKey, verdict);
+    }
+
+    public void invalidate(String login, String password) {
+        cache.invalidate(credentialsKey(login, password));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public String credentialsKey(String login, String password) {
+        Mac hmac = macPool.poll();
+        if (hmac == null) {
+            hmac = createMac();
+        }
+        hmac.update(login.getBytes(StandardCharsets.UTF_8));
+        hmac.update((byte) 0);
+        hmac.update(password.getBytes(StandardCharsets.UTF_8));
+        String key = Base64.getEncoder().encodeToString(hmac.doFinal());
+        macPool.offer(hmac);
+        return key;
+    }
+
+    private Mac createMac() {
+        try {
+            Mac hmac = Mac.getInstance(HMAC_ALGORITHM);
+            hmac.init(secretKey);
+            return hmac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to init " + HMAC_ALGORITHM, e);
+        }
+    }
+
+    private static class VerdictExpiry implements Expiry<String, Boolean> {
+        private final long positiveTtlNanos;
+        private final long negativeTtlNanos;
+
+        private VerdictExpiry(long positiveTtlNanos, long negativeTtlNanos) {
+            this.positiveTtlNanos = positiveTtlNanos;
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Boolean verdict, long currentTime) {
+            return verdict ? positiveTtlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Boolean verdict, long currentTime, long currentDuration) {
+            return verdict ? positiveTtlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Boolean verdict, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.pobopo.weather.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+
+public class ForecastKeys {
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyy:MM:dd:HH");
+
+    public static String hourKey(String city, LocalDateTime date) {
+        return city + Objects.requireNonNull(date, "Date is missing!").format(HOUR_FORMATTER);
+    }
+
+    public static String dayKey(String city, LocalDate date) {
+        return "forecast:" + city + ":" + Objects.requireNonNull(date, "Date is missing!");
+    }
+
+    public static String hourField(int hour) {
+        return String.valueOf(hour);
+    }
+
+    public static String currentKey(String city) {
+        return "current:" + city;
+    }
+}
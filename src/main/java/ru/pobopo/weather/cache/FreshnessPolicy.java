@@ -0,0 +1,50 @@
+package ru.pobopo.weather.cache;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.pobopo.weather.util.EnvUtils;
+
+/**
+ * Decides how long a cached forecast stays valid. Near hours are revised often by the weather api, so they
+ * live shorter than hours further ahead; hours already in the past expire after a fixed time.
+ */
+@Slf4j
+@Component
+public class FreshnessPolicy {
+    private final long minTtlSeconds;
+    private final long perHourSeconds;
+    private final long maxTtlSeconds;
+    private final long pastTtlSeconds;
+    private final long pushedTtlSeconds;
+
+    public FreshnessPolicy() {
+        minTtlSeconds = EnvUtils.getLong("FORECAST_TTL_MIN_SECONDS", 900);
+        perHourSeconds = EnvUtils.getLong("FORECAST_TTL_PER_HOUR_SECONDS", 120);
+        maxTtlSeconds = EnvUtils.getLong("FORECAST_TTL_MAX_SECONDS", Duration.ofHours(6).toSeconds());
+        pastTtlSeconds = EnvUtils.getLong("FORECAST_TTL_PAST_SECONDS", Duration.ofHours(1).toSeconds());
+        pushedTtlSeconds = EnvUtils.getLong("PUSHED_FORECAST_TTL_SECONDS", Duration.ofDays(7).toSeconds());
+        log.info("Forecast ttl: min {}s, per hour ahead {}s, max {}s, past {}s, pushed {}s",
+            minTtlSeconds, perHourSeconds, maxTtlSeconds, pastTtlSeconds, pushedTtlSeconds);
+    }
+
+    public int forecastTtlSeconds(LocalDateTime forecastDate) {
+        return forecastTtlSeconds(forecastDate, LocalDateTime.now());
+    }
+
+    public int forecastTtlSeconds(LocalDateTime forecastDate, LocalDateTime now) {
+        long hoursAhead = Duration.between(now, forecastDate).toHours();
+        if (hoursAhead < 0) {
+            return (int) pastTtlSeconds;
+        }
+        return (int) Math.min(maxTtlSeconds, minTtlSeconds + hoursAhead * perHourSeconds);
+    }
+
+    /**
+     * Ttl of forecasts pushed through the api. A later upstream fetch of the same hour replaces them.
+     */
+    public int pushedTtlSeconds() {
+        return (int) pushedTtlSeconds;
+    }
+}
@@ -0,0 +1,194 @@
+package ru.pobopo.weather.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * One hash per city and day, fields are hours of the day. Each field is prefixed with its own expiry
+ * (epoch second), expired fields read as missing. The hash itself only ever has its ttl extended, so it
+ * lives as long as its longest lived hour and is then dropped by redis.
+ * <p>
+ * With migration enabled, single hour reads also look up the key of the string layout.
+ */
+public class HashRedisForecastLayout implements RedisForecastLayout {
+    private static final byte[] EXTEND_TTL_SCRIPT = SafeEncoder.encode(
+        "if redis.call('TTL', KEYS[1]) < tonumber(ARGV[1]) then "
+            + "return redis.call('EXPIRE', KEYS[1], ARGV[1]) end return 0"
+    );
+    private static final byte[] EXTEND_TTL_SHA = sha1Hex(EXTEND_TTL_SCRIPT);
+    private static final int EXPIRY_SIZE = Long.BYTES;
+
+    private final boolean migrate;
+
+    public HashRedisForecastLayout(boolean migrate) {
+        this.migrate = migrate;
+    }
+
+    @Override
+    public RedisRead read(Pipeline pipeline, String city, LocalDateTime date) {
+        byte[] key = SafeEncoder.encode(ForecastKeys.dayKey(city, date.toLocalDate()));
+        Response<byte[]> value = pipeline.hget(key, SafeEncoder.encode(ForecastKeys.hourField(date.getHour())));
+        RedisRead hashRead = new HashRead(value::get);
+        if (!migrate) {
+            return hashRead;
+        }
+
+        byte[] legacyKey = SafeEncoder.encode(ForecastKeys.hourKey(city, date));
+        Response<byte[]> legacyValue = pipeline.get(legacyKey);
+        Response<Long> legacyTtl = pipeline.ttl(legacyKey);
+        return new RedisRead() {
+            @Override
+            public byte[] value() {
+                return legacy() ? legacyValue.get() : hashRead.value();
+            }
+
+            @Override
+            public Long ttl() {
+                return legacy() ? legacyTtl.get() : hashRead.ttl();
+            }
+
+            @Override
+            public boolean legacy() {
+                return hashRead.value() == null && legacyValue.get() != null;
+            }
+        };
+    }
+
+    @Override
+    public List<RedisRead> readDay(Pipeline pipeline, String city, LocalDate date) {
+        byte[] key = SafeEncoder.encode(ForecastKeys.dayKey(city, date));
+        DayValues dayValues = new DayValues(pipeline.hgetAll(key));
+        List<RedisRead> result = new ArrayList<>(24);
+        for (int hour = 0; hour < 24; hour++) {
+            String field = ForecastKeys.hourField(hour);
+            result.add(new HashRead(() -> dayValues.get(field)));
+        }
+        return result;
+    }
+
+    @Override
+    public Response<?> write(Pipeline pipeline, String city, LocalDateTime date, byte[] value, int ttlSeconds) {
+        byte[] key = SafeEncoder.encode(ForecastKeys.dayKey(city, date.toLocalDate()));
+        byte[] field = ByteBuffer.allocate(EXPIRY_SIZE + value.length)
+            .putLong(nowSeconds() + ttlSeconds)
+            .put(value)
+            .array();
+        pipeline.hset(key, SafeEncoder.encode(ForecastKeys.hourField(date.getHour())), field);
+        return pipeline.evalsha(
+            EXTEND_TTL_SHA,
+            Collections.singletonList(key),
+            Collections.singletonList(SafeEncoder.encode(String.valueOf(ttlSeconds)))
+        );
+    }
+
+    /**
+     * The ttl script is called by its sha, it's loaded when redis doesn't know it yet (first use, restart).
+     */
+    @Override
+    public boolean recover(Jedis jedis, JedisDataException error) {
+        if (error.getMessage() == null || !error.getMessage().startsWith("NOSCRIPT")) {
+            return false;
+        }
+        jedis.scriptLoad(EXTEND_TTL_SCRIPT);
+        return true;
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static byte[] sha1Hex(byte[] script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString().getBytes(StandardCharsets.US_ASCII);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class DayValues {
+        private final Response<Map<byte[], byte[]>> response;
+        private Map<String, byte[]> values;
+
+        private DayValues(Response<Map<byte[], byte[]>> response) {
+            this.response = response;
+        }
+
+        private byte[] get(String field) {
+            if (values == null) {
+                values = new HashMap<>();
+                for (Map.Entry<byte[], byte[]> entry : response.get().entrySet()) {
+                    values.put(SafeEncoder.encode(entry.getKey()), entry.getValue());
+                }
+            }
+            return values.get(field);
+        }
+    }
+
+    /**
+     * Splits a field into its expiry and value once the pipeline is synced.
+     */
+    private static class HashRead implements RedisRead {
+        private final Supplier<byte[]> source;
+        private boolean parsed;
+        private byte[] value;
+        private long ttl;
+
+        private HashRead(Supplier<byte[]> source) {
+            this.source = source;
+        }
+
+        @Override
+        public byte[] value() {
+            parse();
+            return value;
+        }
+
+        @Override
+        public Long ttl() {
+            parse();
+            return value == null ? null : ttl;
+        }
+
+        @Override
+        public boolean legacy() {
+            return false;
+        }
+
+        private void parse() {
+            if (parsed) {
+                return;
+            }
+            parsed = true;
+            byte[] field = source.get();
+            if (field == null || field.length <= EXPIRY_SIZE) {
+                return;
+            }
+            long remaining = ByteBuffer.wrap(field).getLong() - nowSeconds();
+            if (remaining > 0) {
+                value = Arrays.copyOfRange(field, EXPIRY_SIZE, field.length);
+                ttl = remaining;
+            }
+        }
+    }
+}
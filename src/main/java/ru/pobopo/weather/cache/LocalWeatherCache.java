@@ -0,0 +1,79 @@
+package ru.pobopo.weather.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.util.EnvUtils;
+
+/**
+ * In-process cache tier in front of redis. Entries are evicted by size (W-TinyLFU admission)
+ * and by a per-key time to live.
+ */
+@Slf4j
+@Component
+public class LocalWeatherCache {
+    private final Cache<String, WeatherObject> cache;
+    private final Duration defaultTtl;
+
+    public LocalWeatherCache(MeterRegistry meterRegistry) {
+        long maxSize = EnvUtils.getLong("LOCAL_CACHE_SIZE", 100_000);
+        defaultTtl = Duration.ofSeconds(EnvUtils.getLong("LOCAL_CACHE_TTL_SECONDS", 600));
+        log.info("Local cache size {}, ttl {}", maxSize, defaultTtl);
+
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new DefaultExpiry(defaultTtl.toNanos()))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "weather.local");
+    }
+
+    public WeatherObject get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, WeatherObject weatherObject) {
+        put(key, weatherObject, defaultTtl);
+    }
+
+    /**
+     * Puts value with the given time to live, capped by the configured local ttl.
+     */
+    public void put(String key, WeatherObject weatherObject, Duration ttl) {
+        Duration localTtl = ttl.compareTo(defaultTtl) < 0 ? ttl : defaultTtl;
+        cache.policy().expireVariably().orElseThrow().put(key, weatherObject, localTtl);
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    private static class DefaultExpiry implements Expiry<String, WeatherObject> {
+        private final long ttlNanos;
+
+        private DefaultExpiry(long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, WeatherObject value, long currentTime) {
+            return ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, WeatherObject value, long currentTime, long currentDuration) {
+            return ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, WeatherObject value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
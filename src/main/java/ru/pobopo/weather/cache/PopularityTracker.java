@@ -0,0 +1,45 @@
+package ru.pobopo.weather.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counts requests per city within the current window. The number of tracked cities is bounded,
+ * cities seen after the limit is reached are ignored until the next window.
+ */
+public class PopularityTracker {
+    private final int maxTracked;
+    private volatile Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public PopularityTracker(int maxTracked) {
+        this.maxTracked = maxTracked;
+    }
+
+    public void record(String city) {
+        Map<String, LongAdder> current = counters;
+        LongAdder counter = current.get(city);
+        if (counter == null) {
+            if (current.size() >= maxTracked) {
+                return;
+            }
+            counter = current.computeIfAbsent(city, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Returns the most requested cities of the window and starts a new one.
+     */
+    public List<String> topAndReset(int limit) {
+        Map<String, LongAdder> window = counters;
+        counters = new ConcurrentHashMap<>();
+        return window.entrySet().stream()
+            .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+            .limit(limit)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,89 @@
+package ru.pobopo.weather.cache;
+
+import java.time.Duration;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import ru.pobopo.weather.tracing.Span;
+import ru.pobopo.weather.tracing.Tracing;
+import ru.pobopo.weather.util.EnvUtils;
+
+/**
+ * Access to redis through a single connection borrow per operation. Multi-key operations are pipelined,
+ * so they cost one round trip regardless of the number of keys.
+ * <p>
+ * Connections are validated only while idle by default (REDIS_TEST_WHILE_IDLE): the evictor PINGs idle
+ * connections every 30 seconds and drops broken ones. A connection that breaks while in use fails its
+ * command instead of being caught at borrow. REDIS_TEST_ON_BORROW and REDIS_TEST_ON_RETURN bring back
+ * the PING around every borrow, at the cost of two extra round trips per operation.
+ * <p>
+ * Without a request thread limit (virtual threads) the pool is the queue in front of redis,
+ * REDIS_POOL_MAX_WAIT_MS bounds how long a borrow may wait.
+ */
+@Slf4j
+public class RedisAccess {
+    private final JedisPool jedisPool;
+
+    public RedisAccess() {
+        String redisHost = EnvUtils.getString("REDIS_HOST", "localhost");
+        int redisPort = EnvUtils.getInt("REDIS_PORT", 6379);
+        log.info("Redis host/port {}:{}", redisHost, redisPort);
+        jedisPool = new JedisPool(buildPoolConfig(), redisHost, redisPort);
+    }
+
+    public <T> T execute(Function<Jedis, T> command) {
+        try (Jedis jedis = borrow()) {
+            return command.apply(jedis);
+        }
+    }
+
+    /**
+     * Queues commands on a pipeline and syncs it. Responses created by {@code commands}
+     * can be read once this method returns.
+     */
+    public <T> T pipelined(Function<Pipeline, T> commands) {
+        try (Jedis jedis = borrow()) {
+            Pipeline pipeline = jedis.pipelined();
+            T result = commands.apply(pipeline);
+            pipeline.sync();
+            return result;
+        }
+    }
+
+    public JedisPool getPool() {
+        return jedisPool;
+    }
+
+    public void close() {
+        jedisPool.close();
+    }
+
+    private Jedis borrow() {
+        try (Span span = Tracing.span("redis.borrow")) {
+            return jedisPool.getResource();
+        }
+    }
+
+    private JedisPoolConfig buildPoolConfig() {
+        final JedisPoolConfig poolConfig = new JedisPoolConfig();
+        int maxTotal = EnvUtils.getInt("REDIS_POOL_MAX_TOTAL", 128);
+        poolConfig.setMaxTotal(maxTotal);
+        poolConfig.setMaxIdle(maxTotal);
+        poolConfig.setMinIdle(EnvUtils.getInt("REDIS_POOL_MIN_IDLE", 16));
+        poolConfig.setTestOnBorrow(EnvUtils.getBoolean("REDIS_TEST_ON_BORROW", false));
+        poolConfig.setTestOnReturn(EnvUtils.getBoolean("REDIS_TEST_ON_RETURN", false));
+        poolConfig.setTestWhileIdle(EnvUtils.getBoolean("REDIS_TEST_WHILE_IDLE", true));
+        poolConfig.setMinEvictableIdleTime(Duration.ofSeconds(60));
+        poolConfig.setTimeBetweenEvictionRuns(Duration.ofSeconds(30));
+        poolConfig.setNumTestsPerEvictionRun(3);
+        poolConfig.setBlockWhenExhausted(true);
+        poolConfig.setMaxWait(Duration.ofMillis(EnvUtils.getLong("REDIS_POOL_MAX_WAIT_MS", -1)));
+        log.info("Redis pool max {}, min idle {}, test on borrow {}, on return {}, while idle {}",
+            maxTotal, poolConfig.getMinIdle(), poolConfig.getTestOnBorrow(), poolConfig.getTestOnReturn(),
+            poolConfig.getTestWhileIdle());
+        return poolConfig;
+    }
+}
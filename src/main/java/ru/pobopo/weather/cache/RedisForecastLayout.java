@@ -0,0 +1,33 @@
+package ru.pobopo.weather.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * How hourly forecasts are laid out in redis. Reads and writes are queued on the given pipeline.
+ */
+public interface RedisForecastLayout {
+    RedisRead read(Pipeline pipeline, String city, LocalDateTime date);
+
+    /**
+     * Reads all hours of the day, the result is indexed by hour.
+     */
+    List<RedisRead> readDay(Pipeline pipeline, String city, LocalDate date);
+
+    /**
+     * Queues the write, the returned reply fails once the pipeline is synced if the write didn't go through.
+     */
+    Response<?> write(Pipeline pipeline, String city, LocalDateTime date, byte[] value, int ttlSeconds);
+
+    /**
+     * Handles a failed write reply. Returns true if the cause is fixed and the writes can be queued again.
+     */
+    default boolean recover(Jedis jedis, JedisDataException error) {
+        return false;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.pobopo.weather.cache;
+
+/**
+ * Result of a pipelined read, available after the pipeline is synced.
+ */
+public interface RedisRead {
+    byte[] value();
+
+    /**
+     * Remaining time to live in seconds, negative if the key has no expiry.
+     */
+    Long ttl();
+
+    /**
+     * True if the value was found in the layout being migrated from.
+     */
+    boolean legacy();
+}
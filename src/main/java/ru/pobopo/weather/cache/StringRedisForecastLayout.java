@@ -0,0 +1,51 @@
+package ru.pobopo.weather.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * One string key per city and hour.
+ */
+public class StringRedisForecastLayout implements RedisForecastLayout {
+    @Override
+    public RedisRead read(Pipeline pipeline, String city, LocalDateTime date) {
+        byte[] key = SafeEncoder.encode(ForecastKeys.hourKey(city, date));
+        Response<byte[]> value = pipeline.get(key);
+        Response<Long> ttl = pipeline.ttl(key);
+        return new RedisRead() {
+            @Override
+            public byte[] value() {
+                return value.get();
+            }
+
+            @Override
+            public Long ttl() {
+                return ttl.get();
+            }
+
+            @Override
+            public boolean legacy() {
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public List<RedisRead> readDay(Pipeline pipeline, String city, LocalDate date) {
+        List<RedisRead> result = new ArrayList<>(24);
+        for (int hour = 0; hour < 24; hour++) {
+            result.add(read(pipeline, city, date.atTime(hour, 0)));
+        }
+        return result;
+    }
+
+    @Override
+    public Response<?> write(Pipeline pipeline, String city, LocalDateTime date, byte[] value, int ttlSeconds) {
+        return pipeline.setex(SafeEncoder.encode(ForecastKeys.hourKey(city, date)), ttlSeconds, value);
+    }
+}
@@ -0,0 +1,149 @@
+package ru.pobopo.weather.cache;
+
+import com.google.gson.Gson;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import org.springframework.stereotype.Component;
+import ru.pobopo.weather.model.WeatherObject;
+
+/**
+ * Compact binary format for redis values.
+ * <pre>
+ * byte    version
+ * byte    flags
+ * byte    unit (see UNIT_* constants)
+ * float   temperature
+ * int     epoch minute (UTC), if FLAG_DATE
+ * short + utf8 unit, if unit is UNIT_OTHER
+ * short + utf8 city, if FLAG_CITY
+ * </pre>
+ * The city is normally taken from the key and only stored when it differs from it.
+ * Values written as JSON by previous versions are still read.
+ */
+@Component
+public class WeatherObjectCodec {
+    /**
+     * Longest unit or city in utf-8 bytes, their length is written as an unsigned short.
+     */
+    public static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private static final byte VERSION = 1;
+    private static final byte FLAG_DATE = 1;
+    private static final byte FLAG_CITY = 1 << 1;
+    private static final byte UNIT_NONE = 0;
+    private static final byte UNIT_CELSIUS = 1;
+    private static final byte UNIT_FAHRENHEIT = 2;
+    private static final byte UNIT_OTHER = 3;
+    private static final int HEADER_SIZE = 3 + Float.BYTES;
+
+    private final Gson gson;
+
+    public WeatherObjectCodec(Gson gson) {
+        this.gson = gson;
+    }
+
+    public byte[] encode(WeatherObject weatherObject, String keyCity) {
+        byte flags = 0;
+        int size = HEADER_SIZE;
+        if (weatherObject.getDate() != null) {
+            flags |= FLAG_DATE;
+            size += Integer.BYTES;
+        }
+        byte unit = encodeUnit(weatherObject.getUnit());
+        byte[] unitBytes = null;
+        if (unit == UNIT_OTHER) {
+            unitBytes = stringBytes(weatherObject.getUnit(), "Unit");
+            size += Short.BYTES + unitBytes.length;
+        }
+        byte[] cityBytes = null;
+        if (weatherObject.getCity() != null && !Objects.equals(weatherObject.getCity(), keyCity)) {
+            flags |= FLAG_CITY;
+            cityBytes = stringBytes(weatherObject.getCity(), "City");
+            size += Short.BYTES + cityBytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION).put(flags).put(unit).putFloat(weatherObject.getTemperature());
+        if (weatherObject.getDate() != null) {
+            buffer.putInt((int) (weatherObject.getDate().toEpochSecond(ZoneOffset.UTC) / 60));
+        }
+        if (unitBytes != null) {
+            buffer.putShort((short) unitBytes.length).put(unitBytes);
+        }
+        if (cityBytes != null) {
+            buffer.putShort((short) cityBytes.length).put(cityBytes);
+        }
+        return buffer.array();
+    }
+
+    public WeatherObject decode(byte[] data, String keyCity) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (data[0] == '{') {
+            return gson.fromJson(new String(data, StandardCharsets.UTF_8), WeatherObject.class);
+        }
+        if (data[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported weather object version " + data[0]);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+        byte flags = buffer.get();
+        byte unit = buffer.get();
+        WeatherObject weatherObject = new WeatherObject();
+        weatherObject.setTemperature(buffer.getFloat());
+        if ((flags & FLAG_DATE) != 0) {
+            weatherObject.setDate(LocalDateTime.ofEpochSecond(buffer.getInt() * 60L, 0, ZoneOffset.UTC));
+        }
+        weatherObject.setUnit(unit == UNIT_OTHER ? readString(buffer) : decodeUnit(unit));
+        weatherObject.setCity((flags & FLAG_CITY) != 0 ? readString(buffer) : keyCity);
+        return weatherObject;
+    }
+
+    private static byte encodeUnit(String unit) {
+        if (unit == null) {
+            return UNIT_NONE;
+        }
+        switch (unit) {
+            case "celsius":
+                return UNIT_CELSIUS;
+            case "fahrenheit":
+                return UNIT_FAHRENHEIT;
+            default:
+                return UNIT_OTHER;
+        }
+    }
+
+    private static String decodeUnit(byte unit) {
+        switch (unit) {
+            case UNIT_NONE:
+                return null;
+            case UNIT_CELSIUS:
+                return "celsius";
+            case UNIT_FAHRENHEIT:
+                return "fahrenheit";
+            default:
+                throw new IllegalArgumentException("Unknown unit " + unit);
+        }
+    }
+
+    private static byte[] stringBytes(String value, String field) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException(
+                field + " is too long to encode: " + bytes.length + " bytes, max is " + MAX_STRING_BYTES
+            );
+        }
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,176 @@
+package ru.pobopo.weather.client;
+
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.pobopo.weather.model.weatherapi.WeatherApiResponse;
+import ru.pobopo.weather.tracing.Span;
+import ru.pobopo.weather.tracing.Trace;
+import ru.pobopo.weather.tracing.Tracing;
+import ru.pobopo.weather.util.EnvUtils;
+import ru.pobopo.weather.util.ParameterStringBuilder;
+import ru.pobopo.weather.util.VirtualThreads;
+
+/**
+ * Non-blocking client for the weather API. Connections are pooled and kept alive by the underlying
+ * {@link HttpClient}, responses are parsed straight from the body stream.
+ */
+@Slf4j
+@Component
+public class WeatherApiClient {
+    private final String baseUrl;
+    private final String apiKey;
+    private final Duration readTimeout;
+    private final Gson gson;
+    private final ExecutorService executor;
+    private final ExecutorService parseExecutor;
+    private final HttpClient httpClient;
+    private final MeterRegistry meterRegistry;
+    private final Timer parseTimer;
+
+    public WeatherApiClient(Gson gson, MeterRegistry meterRegistry) {
+        this.gson = gson;
+        this.meterRegistry = meterRegistry;
+        parseTimer = Timer.builder("weather.upstream.parse").publishPercentileHistogram().register(meterRegistry);
+        baseUrl = EnvUtils.getString("BASE_URL", null);
+        apiKey = EnvUtils.getString("API_KEY", null);
+        readTimeout = Duration.ofMillis(EnvUtils.getLong("HTTP_READ_TIMEOUT_MS", 5000));
+        Duration connectTimeout = Duration.ofMillis(EnvUtils.getLong("HTTP_CONNECT_TIMEOUT_MS", 2000));
+        int threads = EnvUtils.getInt("HTTP_CLIENT_THREADS", 16);
+        log.info("Weather api client: connect timeout {}, read timeout {}, threads {}",
+            connectTimeout, readTimeout, threads);
+
+        executor = VirtualThreads.isEnabled()
+            ? VirtualThreads.newExecutor("weather-api-")
+            : buildExecutor("weather-api-", threads);
+        // parsing blocks on the body stream, which is fed by the client executor, so it can't share its threads
+        parseExecutor = VirtualThreads.isEnabled()
+            ? VirtualThreads.newExecutor("weather-api-parse-")
+            : buildExecutor("weather-api-parse-", threads);
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(connectTimeout)
+            .executor(executor)
+            .build();
+    }
+
+    public CompletableFuture<WeatherApiResponse> get(String path, Map<String, String> params) {
+        Map<String, String> query = new HashMap<>(params);
+        query.put("key", apiKey);
+        query.put("aqi", "no");
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(baseUrl + path + "?" + ParameterStringBuilder.getParamsString(query)))
+                .timeout(readTimeout)
+                .GET()
+                .build();
+        } catch (IOException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Trace trace = Tracing.current();
+        Span httpSpan = Tracing.span(trace, "upstream.http");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<HttpResponse<InputStream>> sent = httpClient.sendAsync(
+            request, HttpResponse.BodyHandlers.ofInputStream()
+        );
+        sent.whenComplete((response, error) -> {
+            httpSpan.end();
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                sample.stop(upstreamTimer(path, cause.getClass().getSimpleName()));
+            }
+        });
+        CompletableFuture<WeatherApiResponse> parsed = sent.thenApplyAsync(response -> {
+            try (Span parseSpan = Tracing.span(trace, "upstream.parse")) {
+                return parseTimer.record(() -> parseResponse(response));
+            } finally {
+                sample.stop(upstreamTimer(path, String.valueOf(response.statusCode())));
+            }
+        }, parseExecutor);
+        // the request timeout only covers the wait for headers, so a stalled body is bounded here;
+        // closing the stream releases the parse thread blocked on it
+        parsed.orTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+            if (error instanceof TimeoutException) {
+                sent.thenAccept(response -> closeQuietly(response.body()));
+            }
+        });
+        return parsed;
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            log.debug("Failed to close timed out response body", e);
+        }
+    }
+
+    /**
+     * Upstream latency up to the parsed response, tagged with the status code or the failure type.
+     */
+    private Timer upstreamTimer(String path, String status) {
+        return Timer.builder("weather.upstream.latency")
+            .tag("path", path)
+            .tag("status", status)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private WeatherApiResponse parseResponse(HttpResponse<InputStream> response) {
+        try (Reader reader = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+            if (response.statusCode() > 299) {
+                StringBuilder content = new StringBuilder();
+                char[] buffer = new char[1024];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    content.append(buffer, 0, read);
+                }
+                throw new RuntimeException(content.toString());
+            }
+            log.debug("Got weather api response");
+            return gson.fromJson(reader, WeatherApiResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        parseExecutor.shutdown();
+    }
+
+    private static ExecutorService buildExecutor(String namePrefix, int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
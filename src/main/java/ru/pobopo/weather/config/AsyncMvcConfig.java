@@ -0,0 +1,68 @@
+package ru.pobopo.weather.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.pobopo.weather.util.EnvUtils;
+import ru.pobopo.weather.util.VirtualThreads;
+
+/**
+ * Executor and timeout of streamed MVC responses. Each open stream holds a thread while it resolves
+ * forecasts, so streams run on a bounded pool of their own (virtual threads when enabled) and are
+ * cut off after MVC_ASYNC_TIMEOUT_MS.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AsyncMvcConfig implements WebMvcConfigurer {
+    private final ExecutorService executor;
+    private final long timeoutMs;
+
+    public AsyncMvcConfig() {
+        int threads = EnvUtils.getInt("MVC_ASYNC_THREADS", 32);
+        int queueSize = EnvUtils.getInt("MVC_ASYNC_QUEUE_SIZE", 100);
+        timeoutMs = EnvUtils.getLong("MVC_ASYNC_TIMEOUT_MS", 60_000);
+        if (VirtualThreads.isEnabled()) {
+            executor = VirtualThreads.newExecutor("mvc-async-");
+            log.info("Streamed responses on virtual threads, timeout {}ms", timeoutMs);
+        } else {
+            executor = buildExecutor(threads, queueSize);
+            log.info("Streamed responses on {} threads, queue {}, timeout {}ms", threads, queueSize, timeoutMs);
+        }
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+        configurer.setDefaultTimeout(timeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static ExecutorService buildExecutor(int threads, int queueSize) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, "mvc-async-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.pobopo.weather.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import redis.clients.jedis.JedisPool;
+import ru.pobopo.weather.cache.HashRedisForecastLayout;
+import ru.pobopo.weather.cache.RedisAccess;
+import ru.pobopo.weather.cache.RedisForecastLayout;
+import ru.pobopo.weather.cache.StringRedisForecastLayout;
+import ru.pobopo.weather.cache.WeatherObjectCodec;
+import ru.pobopo.weather.store.ForecastStore;
+import ru.pobopo.weather.store.InMemoryForecastStore;
+import ru.pobopo.weather.store.MeteredForecastStore;
+import ru.pobopo.weather.store.OffHeapForecastStore;
+import ru.pobopo.weather.store.RedisForecastStore;
+import ru.pobopo.weather.store.TimeSeriesForecastStore;
+import ru.pobopo.weather.util.EnvUtils;
+
+@Slf4j
+@Configuration
+public class ForecastStoreConfig {
+    @Bean
+    public ForecastStore forecastStore(WeatherObjectCodec codec, MeterRegistry meterRegistry) {
+        String store = EnvUtils.getString("FORECAST_STORE", "redis");
+        log.info("Forecast store {}", store);
+        return new MeteredForecastStore(createStore(store, codec, meterRegistry), store, meterRegistry);
+    }
+
+    private ForecastStore createStore(String store, WeatherObjectCodec codec, MeterRegistry meterRegistry) {
+        switch (store) {
+            case "redis":
+                RedisAccess redisAccess = new RedisAccess();
+                monitorPool(redisAccess.getPool(), meterRegistry);
+                return new RedisForecastStore(redisAccess, redisForecastLayout(), codec);
+            case "memory":
+                return new InMemoryForecastStore(EnvUtils.getLong("MEMORY_STORE_SIZE", 1_000_000));
+            case "offheap":
+                return new OffHeapForecastStore(EnvUtils.getInt("OFFHEAP_STORE_CAPACITY", 1 << 20));
+            case "timeseries":
+                TimeSeriesForecastStore timeSeriesStore = new TimeSeriesForecastStore(
+                    EnvUtils.getInt("TIMESERIES_WINDOW_HOURS", 16 * 24),
+                    EnvUtils.getInt("TIMESERIES_MAX_CITIES", 10_000)
+                );
+                meterRegistry.gauge("weather.store.timeseries.bytes", timeSeriesStore, TimeSeriesForecastStore::footprint);
+                meterRegistry.gauge("weather.store.timeseries.cities", timeSeriesStore, TimeSeriesForecastStore::cityCount);
+                return timeSeriesStore;
+            default:
+                throw new IllegalArgumentException("Unknown forecast store " + store);
+        }
+    }
+
+    private void monitorPool(JedisPool pool, MeterRegistry meterRegistry) {
+        meterRegistry.gauge("weather.redis.pool.active", pool, JedisPool::getNumActive);
+        meterRegistry.gauge("weather.redis.pool.idle", pool, JedisPool::getNumIdle);
+        meterRegistry.gauge("weather.redis.pool.waiters", pool, JedisPool::getNumWaiters);
+    }
+
+    private RedisForecastLayout redisForecastLayout() {
+        String layout = EnvUtils.getString("REDIS_LAYOUT", "string");
+        boolean migrate = EnvUtils.getBoolean("REDIS_LAYOUT_MIGRATE", false);
+        log.info("Redis forecast layout {}, migrate {}", layout, migrate);
+        switch (layout) {
+            case "string":
+                return new StringRedisForecastLayout();
+            case "hash":
+                return new HashRedisForecastLayout(migrate);
+            default:
+                throw new IllegalArgumentException("Unknown redis layout " + layout);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.pobopo.weather.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.pobopo.weather.gson.CurrentWeatherAdapter;
+import ru.pobopo.weather.gson.ForecastAdapter;
+import ru.pobopo.weather.gson.ForecastDayAdapter;
+import ru.pobopo.weather.gson.TempHourAdapter;
+import ru.pobopo.weather.gson.WeatherApiResponseAdapter;
+import ru.pobopo.weather.gson.WeatherObjectAdapter;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.model.weatherapi.CurrentWeather;
+import ru.pobopo.weather.model.weatherapi.Forecast;
+import ru.pobopo.weather.model.weatherapi.ForecastDay;
+import ru.pobopo.weather.model.weatherapi.TempHour;
+import ru.pobopo.weather.model.weatherapi.WeatherApiResponse;
+
+@Configuration
+public class GsonConfig {
+    @Bean
+    public Gson gson() {
+        return new GsonBuilder()
+            .registerTypeAdapter(WeatherApiResponse.class, new WeatherApiResponseAdapter())
+            .registerTypeAdapter(Forecast.class, new ForecastAdapter())
+            .registerTypeAdapter(ForecastDay.class, new ForecastDayAdapter())
+            .registerTypeAdapter(TempHour.class, new TempHourAdapter())
+            .registerTypeAdapter(CurrentWeather.class, new CurrentWeatherAdapter())
+            .registerTypeAdapter(WeatherObject.class, new WeatherObjectAdapter())
+            .create();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.pobopo.weather.config;
+
+import java.util.concurrent.ExecutorService;
+import javax.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.pobopo.weather.util.VirtualThreads;
+
+/**
+ * Runs tomcat request handling on virtual threads when they are enabled, so blocking on auth, redis and
+ * the weather api no longer holds a pooled thread. Streamed responses are covered by {@link AsyncMvcConfig}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class VirtualThreadsConfig {
+    private final ExecutorService requestExecutor;
+
+    public VirtualThreadsConfig() {
+        requestExecutor = VirtualThreads.isEnabled() ? VirtualThreads.newExecutor("http-") : null;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (requestExecutor != null) {
+                protocolHandler.setExecutor(requestExecutor);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ru.pobopo.weather.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.pobopo.weather.exception.ValidationException;
+import ru.pobopo.weather.model.BulkIngestResult;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.ForecastResult;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.service.BulkIngestService;
+import ru.pobopo.weather.service.WeatherService;
+import ru.pobopo.weather.util.RequestDates;
+
+/**
+ * WebFlux version of {@link WeatherController}, active with WEB_MODE=reactive.
+ * <p>
+ * Upstream calls are awaited without holding a thread: their futures are composed into the response.
+ * Cache and store lookups and store writes are blocking and run on the bounded elastic scheduler, never
+ * on the event loop.
+ */
+@RestController
+@RequestMapping("/v1")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWeatherController {
+    @Autowired
+    private WeatherService weatherService;
+    @Autowired
+    private BulkIngestService bulkIngestService;
+
+    @GetMapping("/forecast")
+    public Mono<WeatherObject> getForecast(@RequestParam String city, @RequestParam String dt) {
+        LocalDateTime date = RequestDates.parse(dt);
+        return blocking(() -> weatherService.findForecast(city, date))
+            .switchIfEmpty(Mono.defer(() -> Mono.fromFuture(weatherService.fetchForecastHour(city, date))));
+    }
+
+    @PostMapping("/forecast/batch")
+    public Mono<List<ForecastResult>> getForecasts(@RequestBody List<ForecastRequest> requests)
+        throws ValidationException {
+        weatherService.validateBatch(requests);
+        return blocking(() -> weatherService.lookupForecasts(requests))
+            .flatMap(lookup -> Mono.fromFuture(lookup.all()));
+    }
+
+    /**
+     * Results found in caches first, then each city's results as soon as its upstream call completes.
+     */
+    @PostMapping(value = "/forecast/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ForecastResult> streamForecasts(@RequestBody List<ForecastRequest> requests)
+        throws ValidationException {
+        weatherService.validateBatch(requests);
+        return blocking(() -> weatherService.lookupForecasts(requests))
+            .flatMapMany(lookup -> Flux.concat(
+                Flux.fromIterable(lookup.found()),
+                Flux.merge(Flux.fromIterable(lookup.fetches())
+                    .map(fetch -> Mono.fromFuture(fetch).flatMapIterable(results -> results)))
+            ));
+    }
+
+    /**
+     * Json array or NDJSON depending on the Accept header, written while hours are resolved.
+     */
+    @GetMapping("/forecast/range")
+    public Flux<WeatherObject> getRange(
+        @RequestParam String city,
+        @RequestParam String from,
+        @RequestParam String to
+    ) throws ValidationException {
+        LocalDateTime fromDate = RequestDates.parse(from);
+        LocalDateTime toDate = RequestDates.parse(to);
+        weatherService.validateRange(city, fromDate, toDate);
+        return blocking(() -> weatherService.lookupRange(city, fromDate, toDate))
+            .flatMapMany(lookup -> Flux.concat(
+                Flux.fromIterable(lookup.leading()),
+                Mono.fromFuture(lookup.rest()).flatMapIterable(rest -> rest)
+            ));
+    }
+
+    @GetMapping("/current")
+    public Mono<WeatherObject> getCurrent(@RequestParam String city) {
+        return blocking(() -> weatherService.findCurrent(city))
+            .switchIfEmpty(Mono.defer(() -> Mono.fromFuture(weatherService.fetchCurrent(city))));
+    }
+
+    @PutMapping("/forecast")
+    public Mono<Void> saveWeather(@RequestBody WeatherObject weatherObject) {
+        return blocking(() -> {
+            weatherService.saveWeather(weatherObject);
+            return null;
+        }).then();
+    }
+
+    @PutMapping(
+        value = "/forecast/bulk",
+        consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE}
+    )
+    public Mono<BulkIngestResult> ingest(@RequestBody Flux<JsonNode> items) {
+        return Mono.defer(() -> {
+            BulkIngestService.Ingest ingest = bulkIngestService.start();
+            return items.publishOn(Schedulers.boundedElastic())
+                .doOnNext(ingest::add)
+                .then()
+                .onErrorResume(DecodingException.class, e -> {
+                    ingest.malformed(e.getMessage());
+                    return Mono.empty();
+                })
+                .then(blocking(ingest::finish));
+        });
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -2,29 +2,102 @@ package ru.pobopo.weather.controller;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.pobopo.weather.exception.ValidationException;
+import ru.pobopo.weather.model.BulkIngestResult;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.ForecastResult;
 import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.service.BulkIngestService;
 import ru.pobopo.weather.service.WeatherService;
+import ru.pobopo.weather.util.IOConsumer;
+import ru.pobopo.weather.util.RequestDates;
 
 @RestController
 @RequestMapping("/v1")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class WeatherController {
     @Autowired
     private WeatherService weatherService;
+    @Autowired
+    private BulkIngestService bulkIngestService;
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @GetMapping("/forecast")
     public WeatherObject getForecast(@RequestParam String city, @RequestParam String dt)
         throws ValidationException, IOException {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
-        return weatherService.getForecast(city, LocalDateTime.parse(dt, formatter));
+        return weatherService.getForecast(city, RequestDates.parse(dt));
+    }
+
+    /**
+     * Hourly forecasts of [from, to) as a json array, written while they are resolved.
+     */
+    @GetMapping("/forecast/range")
+    public ResponseEntity<StreamingResponseBody> getRange(
+        @RequestParam String city,
+        @RequestParam String from,
+        @RequestParam String to
+    ) throws ValidationException {
+        LocalDateTime fromDate = RequestDates.parse(from);
+        LocalDateTime toDate = RequestDates.parse(to);
+        weatherService.validateRange(city, fromDate, toDate);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                weatherService.getRange(city, fromDate, toDate, weatherObject -> {
+                    generator.writeObject(weatherObject);
+                    generator.flush();
+                });
+                generator.writeEndArray();
+            } catch (ValidationException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @PostMapping("/forecast/batch")
+    public List<ForecastResult> getForecasts(@RequestBody List<ForecastRequest> requests) throws ValidationException {
+        return weatherService.getForecasts(requests);
+    }
+
+    /**
+     * Same as the batch, but every result is written as a json line as soon as it is resolved.
+     */
+    @PostMapping(value = "/forecast/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamForecasts(@RequestBody List<ForecastRequest> requests)
+        throws ValidationException {
+        weatherService.validateBatch(requests);
+        return ndjson(consumer -> weatherService.streamForecasts(requests, consumer));
+    }
+
+    @GetMapping(value = "/forecast/range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRange(
+        @RequestParam String city,
+        @RequestParam String from,
+        @RequestParam String to
+    ) throws ValidationException {
+        LocalDateTime fromDate = RequestDates.parse(from);
+        LocalDateTime toDate = RequestDates.parse(to);
+        weatherService.validateRange(city, fromDate, toDate);
+        return ndjson(consumer -> weatherService.getRange(city, fromDate, toDate, consumer));
     }
 
     @GetMapping("/current")
@@ -36,4 +109,36 @@ public class WeatherController {
     public void saveWeather(@RequestBody WeatherObject weatherObject) throws ValidationException {
         weatherService.saveWeather(weatherObject);
     }
+
+    /**
+     * Accepts a json array or NDJSON of forecasts, items are validated and stored while the body is read.
+     */
+    @PutMapping(
+        value = "/forecast/bulk",
+        consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE}
+    )
+    public BulkIngestResult ingest(HttpServletRequest request) throws IOException {
+        return bulkIngestService.ingest(request.getInputStream());
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(StreamSource source) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                source.writeTo(value -> {
+                    generator.writeObject(value);
+                    generator.writeRaw('\n');
+                    generator.flush();
+                });
+            } catch (ValidationException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @FunctionalInterface
+    private interface StreamSource {
+        void writeTo(IOConsumer<Object> consumer) throws IOException, ValidationException;
+    }
 }
@@ -0,0 +1,18 @@
+package ru.pobopo.weather.filter;
+
+import org.apache.commons.lang3.StringUtils;
+
+public class AuthHeader {
+    public static final String NAME = "Own-Auth-UserName";
+
+    /**
+     * Splits a "login;password" header value, returns null when it is blank or malformed.
+     */
+    public static String[] parse(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        String[] credits = value.split(";");
+        return credits.length == 2 ? credits : null;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.pobopo.weather.filter;
+
+import java.util.ArrayList;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import ru.pobopo.weather.service.AuthService;
+import ru.pobopo.weather.util.LogSampler;
+
+/**
+ * Reactive counterpart of {@link SecurityFilter}, the auth call does not block the event loop.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityFilter implements WebFilter {
+    private final AuthService authService;
+    private final LogSampler emptyHeaderWarnings = new LogSampler();
+
+    public ReactiveSecurityFilter(AuthService authService) {
+        this.authService = authService;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String authHeaderValue = exchange.getRequest().getHeaders().getFirst(AuthHeader.NAME);
+        if (StringUtils.isBlank(authHeaderValue)) {
+            long suppressed = emptyHeaderWarnings.sample();
+            if (suppressed >= 0) {
+                log.warn("Empty auth header! {} similar suppressed", suppressed);
+            }
+            return chain.filter(exchange);
+        }
+        String[] credits = AuthHeader.parse(authHeaderValue);
+        if (credits == null) {
+            return chain.filter(exchange);
+        }
+        return Mono.fromFuture(authService.authUserAsync(credits[0], credits[1]))
+            .flatMap(authenticated -> {
+                if (!authenticated) {
+                    return chain.filter(exchange);
+                }
+                UserDetails details = new User(credits[0], credits[1], new ArrayList<>());
+                UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
+                    details, null, details.getAuthorities()
+                );
+                return chain.filter(exchange).contextWrite(ReactiveSecurityContextHolder.withAuthentication(token));
+            });
+    }
+}
@@ -10,6 +10,7 @@ import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
@@ -18,13 +19,14 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import ru.pobopo.weather.service.AuthService;
+import ru.pobopo.weather.util.LogSampler;
 
 @Component
 @Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecurityFilter extends OncePerRequestFilter {
-    private static final String AUTH_HEADER = "Own-Auth-UserName";
-
     private final AuthService authService;
+    private final LogSampler emptyHeaderWarnings = new LogSampler();
 
     @Autowired
     public SecurityFilter(AuthService authService) {
@@ -34,10 +36,10 @@ public class SecurityFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
         throws ServletException, IOException {
-        final String authHeaderValue = request.getHeader(AUTH_HEADER);
+        final String authHeaderValue = request.getHeader(AuthHeader.NAME);
         if (StringUtils.isNotBlank(authHeaderValue)) {
-            String[] credits = authHeaderValue.split(";");
-            if (credits.length == 2 && authService.authUser(credits[0], credits[1])) {
+            String[] credits = AuthHeader.parse(authHeaderValue);
+            if (credits != null && authService.authUser(credits[0], credits[1])) {
                 UserDetails details = new User(credits[0], credits[1], new ArrayList<>());
                 UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
                     details, null, details.getAuthorities()
@@ -46,7 +48,10 @@ public class SecurityFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(token);
             }
         } else {
-            log.warn("Empty auth header!");
+            long suppressed = emptyHeaderWarnings.sample();
+            if (suppressed >= 0) {
+                log.warn("Empty auth header! {} similar suppressed", suppressed);
+            }
         }
 
         filterChain.doFilter(request, response);
@@ -0,0 +1,44 @@
+package ru.pobopo.weather.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import ru.pobopo.weather.model.weatherapi.CurrentWeather;
+
+public class CurrentWeatherAdapter extends TypeAdapter<CurrentWeather> {
+    @Override
+    public void write(JsonWriter out, CurrentWeather value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("temp_c").value(value.getTemp_c());
+        out.name("temp_f").value(value.getTemp_f());
+        out.endObject();
+    }
+
+    @Override
+    public CurrentWeather read(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        CurrentWeather currentWeather = new CurrentWeather();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "temp_c":
+                    currentWeather.setTemp_c((float) in.nextDouble());
+                    break;
+                case "temp_f":
+                    currentWeather.setTemp_f((float) in.nextDouble());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return currentWeather;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.pobopo.weather.gson;
+
+import com.google.gson.JsonParseException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Parses weather api timestamps ("yyyy-MM-dd" and "yyyy-MM-dd HH:mm") without going through DateTimeFormatter.
+ */
+public class DateParser {
+    public static LocalDate parseDate(String value) {
+        if (value == null || value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            throw new JsonParseException("Unexpected date format: " + value);
+        }
+        return LocalDate.of(digits(value, 0, 4), digits(value, 5, 7), digits(value, 8, 10));
+    }
+
+    public static LocalDateTime parseDateTime(String value) {
+        if (value == null || value.length() != 16 || value.charAt(10) != ' ' || value.charAt(13) != ':') {
+            throw new JsonParseException("Unexpected date time format: " + value);
+        }
+        return LocalDateTime.of(
+            digits(value, 0, 4), digits(value, 5, 7), digits(value, 8, 10),
+            digits(value, 11, 13), digits(value, 14, 16)
+        );
+    }
+
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new JsonParseException("Unexpected date format: " + value);
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
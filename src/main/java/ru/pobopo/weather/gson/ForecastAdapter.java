@@ -0,0 +1,65 @@
+package ru.pobopo.weather.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import ru.pobopo.weather.model.weatherapi.Forecast;
+import ru.pobopo.weather.model.weatherapi.ForecastDay;
+
+public class ForecastAdapter extends TypeAdapter<Forecast> {
+    private final ForecastDayAdapter forecastDayAdapter = new ForecastDayAdapter();
+
+    @Override
+    public void write(JsonWriter out, Forecast value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("forecastday");
+        if (value.getForecastday() == null) {
+            out.nullValue();
+        } else {
+            out.beginArray();
+            for (ForecastDay forecastDay : value.getForecastday()) {
+                forecastDayAdapter.write(out, forecastDay);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Forecast read(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        Forecast forecast = new Forecast();
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("forecastday".equals(in.nextName())) {
+                forecast.setForecastday(readDays(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return forecast;
+    }
+
+    private List<ForecastDay> readDays(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        List<ForecastDay> days = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            days.add(forecastDayAdapter.read(in));
+        }
+        in.endArray();
+        return days;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.pobopo.weather.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import ru.pobopo.weather.model.weatherapi.ForecastDay;
+import ru.pobopo.weather.model.weatherapi.TempHour;
+
+/**
+ * Reads date and hours of a forecast day, the day summary and astro blocks are skipped.
+ */
+public class ForecastDayAdapter extends TypeAdapter<ForecastDay> {
+    private final TempHourAdapter tempHourAdapter = new TempHourAdapter();
+
+    @Override
+    public void write(JsonWriter out, ForecastDay value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("date");
+        if (value.getDate() == null) {
+            out.nullValue();
+        } else {
+            out.value(value.getDate().toString());
+        }
+        out.name("hour");
+        if (value.getHour() == null) {
+            out.nullValue();
+        } else {
+            out.beginArray();
+            for (TempHour tempHour : value.getHour()) {
+                tempHourAdapter.write(out, tempHour);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ForecastDay read(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        ForecastDay forecastDay = new ForecastDay();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "date":
+                    forecastDay.setDate(DateParser.parseDate(in.nextString()));
+                    break;
+                case "hour":
+                    forecastDay.setHour(readHours(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return forecastDay;
+    }
+
+    private List<TempHour> readHours(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        List<TempHour> hours = new ArrayList<>(24);
+        in.beginArray();
+        while (in.hasNext()) {
+            hours.add(tempHourAdapter.read(in));
+        }
+        in.endArray();
+        return hours;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.pobopo.weather.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import ru.pobopo.weather.model.weatherapi.Location;
+
+public class LocationAdapter extends TypeAdapter<Location> {
+    @Override
+    public void write(JsonWriter out, Location value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("name").value(value.getName());
+        out.name("region").value(value.getRegion());
+        out.name("country").value(value.getCountry());
+        out.endObject();
+    }
+
+    @Override
+    public Location read(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        Location location = new Location();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    location.setName(in.nextString());
+                    break;
+                case "region":
+                    location.setRegion(in.nextString());
+                    break;
+                case "country":
+                    location.setCountry(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return location;
+    }
+}
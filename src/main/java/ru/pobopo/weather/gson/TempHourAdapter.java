@@ -0,0 +1,49 @@
+package ru.pobopo.weather.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import ru.pobopo.weather.model.weatherapi.TempHour;
+
+public class TempHourAdapter extends TypeAdapter<TempHour> {
+    @Override
+    public void write(JsonWriter out, TempHour value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("time");
+        if (value.getTime() == null) {
+            out.nullValue();
+        } else {
+            out.value(String.format("%tF %<tR", value.getTime()));
+        }
+        out.name("temp_c").value(value.getTemp_c());
+        out.endObject();
+    }
+
+    @Override
+    public TempHour read(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        TempHour tempHour = new TempHour();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "time":
+                    tempHour.setTime(DateParser.parseDateTime(in.nextString()));
+                    break;
+                case "temp_c":
+                    tempHour.setTemp_c((float) in.nextDouble());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return tempHour;
+    }
+}
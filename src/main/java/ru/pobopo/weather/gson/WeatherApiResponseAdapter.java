@@ -0,0 +1,55 @@
+package ru.pobopo.weather.gson;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import ru.pobopo.weather.model.weatherapi.WeatherApiResponse;
+
+public class WeatherApiResponseAdapter extends TypeAdapter<WeatherApiResponse> {
+    private final LocationAdapter locationAdapter = new LocationAdapter();
+    private final CurrentWeatherAdapter currentWeatherAdapter = new CurrentWeatherAdapter();
+    private final ForecastAdapter forecastAdapter = new ForecastAdapter();
+
+    @Override
+    public void write(JsonWriter out, WeatherApiResponse value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("location");
+        locationAdapter.write(out, value.getLocation());
+        out.name("current");
+        currentWeatherAdapter.write(out, value.getCurrent());
+        out.name("forecast");
+        forecastAdapter.write(out, value.getForecast());
+        out.endObject();
+    }
+
+    @Override
+    public WeatherApiResponse read(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        WeatherApiResponse response = new WeatherApiResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "location":
+                    response.setLocation(locationAdapter.read(in));
+                    break;
+                case "current":
+                    response.setCurrent(currentWeatherAdapter.read(in));
+                    break;
+                case "forecast":
+                    response.setForecast(forecastAdapter.read(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+}
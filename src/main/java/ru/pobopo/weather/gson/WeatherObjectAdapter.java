@@ -0,0 +1,117 @@
+package ru.pobopo.weather.gson;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import ru.pobopo.weather.model.WeatherObject;
+
+/**
+ * Writes the date as an ISO string. Also reads the reflective layout of older redis values, where the date
+ * was stored as nested {"date": {...}, "time": {...}} objects.
+ */
+public class WeatherObjectAdapter extends TypeAdapter<WeatherObject> {
+    @Override
+    public void write(JsonWriter out, WeatherObject value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("city").value(value.getCity());
+        out.name("temperature").value(value.getTemperature());
+        out.name("unit").value(value.getUnit());
+        if (value.getDate() != null) {
+            out.name("date").value(value.getDate().toString());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public WeatherObject read(JsonReader in) throws IOException {
+        if (ReaderUtils.skipNull(in)) {
+            return null;
+        }
+        WeatherObject weatherObject = new WeatherObject();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "city":
+                    weatherObject.setCity(in.nextString());
+                    break;
+                case "temperature":
+                    weatherObject.setTemperature((float) in.nextDouble());
+                    break;
+                case "unit":
+                    weatherObject.setUnit(in.nextString());
+                    break;
+                case "date":
+                    weatherObject.setDate(readDate(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return weatherObject;
+    }
+
+    private LocalDateTime readDate(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            return LocalDateTime.parse(in.nextString());
+        }
+
+        int[] parts = new int[6];
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("date".equals(name) || "time".equals(name)) {
+                readLegacyParts(in, parts);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (parts[0] == 0) {
+            throw new JsonParseException("Date is missing year");
+        }
+        return LocalDateTime.of(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5]);
+    }
+
+    private void readLegacyParts(JsonReader in, int[] parts) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "year":
+                    parts[0] = in.nextInt();
+                    break;
+                case "month":
+                    parts[1] = in.nextInt();
+                    break;
+                case "day":
+                    parts[2] = in.nextInt();
+                    break;
+                case "hour":
+                    parts[3] = in.nextInt();
+                    break;
+                case "minute":
+                    parts[4] = in.nextInt();
+                    break;
+                case "second":
+                    parts[5] = in.nextInt();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+}
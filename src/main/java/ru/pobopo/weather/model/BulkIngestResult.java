@@ -0,0 +1,12 @@
+package ru.pobopo.weather.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class BulkIngestResult {
+    private int accepted;
+    private int rejected;
+    private List<String> errors = new ArrayList<>();
+}
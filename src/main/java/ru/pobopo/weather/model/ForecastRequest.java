@@ -0,0 +1,14 @@
+package ru.pobopo.weather.model;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastRequest {
+    private String city;
+    private LocalDateTime dt;
+}
@@ -0,0 +1,24 @@
+package ru.pobopo.weather.model;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastResult {
+    private String city;
+    private LocalDateTime dt;
+    private WeatherObject forecast;
+    private String error;
+
+    public static ForecastResult success(ForecastRequest request, WeatherObject forecast) {
+        return new ForecastResult(request.getCity(), request.getDt(), forecast, null);
+    }
+
+    public static ForecastResult failure(ForecastRequest request, String error) {
+        return new ForecastResult(request.getCity(), request.getDt(), null, error);
+    }
+}
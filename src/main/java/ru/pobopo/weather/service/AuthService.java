@@ -1,43 +1,144 @@
 package ru.pobopo.weather.service;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.BoolValue;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
+import ru.pobopo.weather.cache.AuthResultCache;
 import ru.pobopo.weather.grpc.AuthServiceGrpc;
 import ru.pobopo.weather.grpc.Credits;
+import ru.pobopo.weather.tracing.Span;
+import ru.pobopo.weather.tracing.Tracing;
+import ru.pobopo.weather.util.EnvUtils;
+import ru.pobopo.weather.util.LogSampler;
+import ru.pobopo.weather.util.RequestCoalescer;
+import ru.pobopo.weather.util.VirtualThreads;
 
+@Slf4j
 @Component
 public class AuthService {
     private final ManagedChannel channel;
+    private final AuthServiceGrpc.AuthServiceFutureStub stub;
     private final boolean securityDisabled;
+    private final long deadlineMs;
+    private final AuthResultCache authResultCache;
+    private final RequestCoalescer<Boolean> authRequests;
+    private final MeterRegistry meterRegistry;
+    private final LogSampler deadlineWarnings = new LogSampler();
 
-    public AuthService() {
-        String host = System.getenv("AUTH_HOST");
-        String port = System.getenv("AUTH_PORT");
+    public AuthService(AuthResultCache authResultCache, MeterRegistry meterRegistry) {
+        this.authResultCache = authResultCache;
+        this.meterRegistry = meterRegistry;
+        String host = EnvUtils.getString("AUTH_HOST", null);
+        String port = EnvUtils.getString("AUTH_PORT", null);
         if (StringUtils.isBlank(host) || StringUtils.isBlank(port)) {
             throw new RuntimeException("Missing auth host/port env variables!");
         }
-        this.channel = ManagedChannelBuilder
+        ManagedChannelBuilder<?> channelBuilder = ManagedChannelBuilder
             .forAddress(host, Integer.parseInt(port))
-            .usePlaintext()
-            .build();
-        this.securityDisabled = isSecurityDisabled();
+            .usePlaintext();
+        if (VirtualThreads.isEnabled()) {
+            channelBuilder.executor(VirtualThreads.newExecutor("auth-grpc-"));
+        }
+        this.channel = channelBuilder.build();
+        this.stub = AuthServiceGrpc.newFutureStub(channel);
+        this.securityDisabled = EnvUtils.getBoolean("SECURITY_DISABLED", false);
+        this.deadlineMs = EnvUtils.getLong("AUTH_DEADLINE_MS", 1000);
+        // the gRPC deadline fails the call first, the coalescer timeout only guards against a lost callback
+        this.authRequests = new RequestCoalescer<>(meterRegistry, "auth", Duration.ofMillis(deadlineMs * 2));
     }
 
     public boolean authUser(String login, String password) {
-        if (isSecurityDisabled()) {
-            return true;
+        return authUserAsync(login, password).join();
+    }
+
+    public CompletableFuture<Boolean> authUserAsync(String login, String password) {
+        if (securityDisabled) {
+            return CompletableFuture.completedFuture(true);
+        }
+        String key = authResultCache.credentialsKey(login, password);
+        Boolean cached = authResultCache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
-        AuthServiceGrpc.AuthServiceBlockingStub stub = AuthServiceGrpc.newBlockingStub(channel);
+        Span span = Tracing.span("auth");
+        return authRequests.execute(key, () -> callAuthService(login, password).thenApply(verdict -> {
+            authResultCache.put(key, verdict);
+            return verdict;
+        })).whenComplete((verdict, error) -> span.end()).exceptionally(this::onAuthFailure);
+    }
+
+    public void invalidate(String login, String password) {
+        authResultCache.invalidate(login, password);
+    }
+
+    public void invalidateAll() {
+        authResultCache.invalidateAll();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channel.shutdown();
+    }
+
+    private CompletableFuture<Boolean> callAuthService(String login, String password) {
         Credits credits = Credits.newBuilder().setLogin(login).setPassword(password).build();
-        BoolValue result = stub.authUser(credits);
-        return result.getValue();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Futures.addCallback(
+            stub.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS).authUser(credits),
+            new FutureCallback<>() {
+                @Override
+                public void onSuccess(BoolValue value) {
+                    sample.stop(authTimer("success"));
+                    result.complete(value.getValue());
+                }
+
+                @Override
+                public void onFailure(Throwable error) {
+                    sample.stop(authTimer(Status.fromThrowable(error).getCode().name()));
+                    result.completeExceptionally(error);
+                }
+            },
+            MoreExecutors.directExecutor()
+        );
+        return result;
+    }
+
+    /**
+     * Calls over the deadline are treated as rejected, any other failure is passed on.
+     */
+    private Boolean onAuthFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof StatusRuntimeException
+            && ((StatusRuntimeException) cause).getStatus().getCode() == Status.Code.DEADLINE_EXCEEDED) {
+            long suppressed = deadlineWarnings.sample();
+            if (suppressed >= 0) {
+                log.warn("Auth call exceeded deadline of {} ms, {} similar suppressed", deadlineMs, suppressed);
+            }
+            return false;
+        }
+        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
     }
 
-    private boolean isSecurityDisabled() {
-        String value = System.getenv("SECURITY_DISABLED");
-        return StringUtils.isNotBlank(value) && Boolean.parseBoolean(value);
+    private Timer authTimer(String outcome) {
+        return Timer.builder("weather.auth.latency")
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
     }
 }
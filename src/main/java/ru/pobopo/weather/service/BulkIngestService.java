@@ -0,0 +1,122 @@
+package ru.pobopo.weather.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.pobopo.weather.exception.ValidationException;
+import ru.pobopo.weather.model.BulkIngestResult;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.util.EnvUtils;
+
+/**
+ * Reads pushed forecasts from a json array or NDJSON stream item by item and stores them in batches,
+ * so the body is never held in memory as a whole.
+ */
+@Slf4j
+@Service
+public class BulkIngestService {
+    private final WeatherService weatherService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxErrors;
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+
+    public BulkIngestService(WeatherService weatherService, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.weatherService = weatherService;
+        this.objectMapper = objectMapper;
+        batchSize = EnvUtils.getInt("BULK_BATCH_SIZE", 500);
+        maxErrors = EnvUtils.getInt("BULK_MAX_ERRORS", 100);
+        acceptedCounter = meterRegistry.counter("weather.bulk.items", "result", "accepted");
+        rejectedCounter = meterRegistry.counter("weather.bulk.items", "result", "rejected");
+    }
+
+    public BulkIngestResult ingest(InputStream inputStream) throws IOException {
+        Ingest ingest = start();
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                ingest.add(parser.readValueAsTree());
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            ingest.malformed(e.getOriginalMessage());
+        }
+        return ingest.finish();
+    }
+
+    /**
+     * Starts an ingest fed with already tokenized items, used when the body is decoded elsewhere.
+     */
+    public Ingest start() {
+        return new Ingest();
+    }
+
+    public class Ingest {
+        private final BulkIngestResult result = new BulkIngestResult();
+        private final List<WeatherObject> batch = new ArrayList<>(batchSize);
+        private final long start = System.currentTimeMillis();
+        private int index;
+
+        public void add(JsonNode node) {
+            try {
+                WeatherObject weatherObject = objectMapper.treeToValue(node, WeatherObject.class);
+                weatherService.validateWeather(weatherObject);
+                batch.add(weatherObject);
+            } catch (JsonProcessingException e) {
+                reject(String.format("Item %d: %s", index, e.getOriginalMessage()));
+            } catch (ValidationException e) {
+                reject(String.format("Item %d: %s", index, e.getMessage()));
+            }
+            index++;
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * The rest of the body can't be parsed, items read so far are kept.
+         */
+        public void malformed(String message) {
+            reject("Malformed body: " + message);
+        }
+
+        public BulkIngestResult finish() {
+            flush();
+            log.info("Bulk ingest: {} accepted, {} rejected in {} ms",
+                result.getAccepted(), result.getRejected(), System.currentTimeMillis() - start);
+            return result;
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            weatherService.savePushed(batch);
+            result.setAccepted(result.getAccepted() + batch.size());
+            acceptedCounter.increment(batch.size());
+            batch.clear();
+        }
+
+        private void reject(String error) {
+            result.setRejected(result.getRejected() + 1);
+            rejectedCounter.increment();
+            if (result.getErrors().size() < maxErrors) {
+                result.getErrors().add(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.pobopo.weather.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ForecastRefreshScheduler {
+    private final WeatherService weatherService;
+
+    public ForecastRefreshScheduler(WeatherService weatherService) {
+        this.weatherService = weatherService;
+    }
+
+    @Scheduled(
+        initialDelayString = "${TOP_CITIES_REFRESH_INTERVAL_MS:600000}",
+        fixedDelayString = "${TOP_CITIES_REFRESH_INTERVAL_MS:600000}"
+    )
+    public void refreshPopularCities() {
+        weatherService.refreshPopularCities();
+    }
+}
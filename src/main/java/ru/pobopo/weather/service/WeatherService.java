@@ -1,89 +1,128 @@
 package ru.pobopo.weather.service;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonDeserializer;
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
+import ru.pobopo.weather.cache.ForecastKeys;
+import ru.pobopo.weather.cache.FreshnessPolicy;
+import ru.pobopo.weather.cache.LocalWeatherCache;
+import ru.pobopo.weather.cache.PopularityTracker;
+import ru.pobopo.weather.cache.WeatherObjectCodec;
+import ru.pobopo.weather.client.WeatherApiClient;
 import ru.pobopo.weather.exception.ValidationException;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.ForecastResult;
 import ru.pobopo.weather.model.WeatherObject;
 import ru.pobopo.weather.model.weatherapi.ForecastDay;
 import ru.pobopo.weather.model.weatherapi.TempHour;
 import ru.pobopo.weather.model.weatherapi.WeatherApiResponse;
-import ru.pobopo.weather.util.ParameterStringBuilder;
+import ru.pobopo.weather.store.ForecastStore;
+import ru.pobopo.weather.store.StoredForecast;
+import ru.pobopo.weather.tracing.Span;
+import ru.pobopo.weather.tracing.Tracing;
+import ru.pobopo.weather.util.EnvUtils;
+import ru.pobopo.weather.util.IOConsumer;
+import ru.pobopo.weather.util.LogSampler;
+import ru.pobopo.weather.util.RequestCoalescer;
 
 @Slf4j
 @Service
 public class WeatherService {
-    private final String baseUrl;
-    private final String apiKey;
-    private final Gson gson;
-    private final JedisPool jedisPool;
-    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy:MM:dd:hh");
-
-    public WeatherService() {
-        baseUrl = System.getenv("BASE_URL");
-        apiKey = System.getenv("API_KEY");
-
-        String redisHost = System.getenv("REDIS_HOST");
-        String redisPort = System.getenv("REDIS_PORT");
-
-        if (StringUtils.isBlank(redisHost)) {
-            redisHost = "localhost";
-        }
-        if (StringUtils.isBlank(redisPort)) {
-            redisPort = "6379";
-        }
-        log.info(String.format("Redis host/port %s:%s", redisHost, redisPort));
-        jedisPool = new JedisPool(buildPoolConfig(), redisHost, Integer.parseInt(redisPort));
-//        try (Jedis jedis = jedisPool.getResource()) {
-//            log.warn("Flushing redis");
-//            jedis.flushAll();
-//        }
-
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(LocalDateTime.class,
-            (JsonDeserializer<LocalDateTime>) (json, type, jsonDeserializationContext) -> {
-                try {
-                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-                    return LocalDateTime.parse(json.getAsString(), formatter);
-                } catch (Exception ex) {
-                    return LocalDateTime.now();
-                }
-            });
-        gsonBuilder.registerTypeAdapter(LocalDate.class,
-            (JsonDeserializer<LocalDate>) (json, type, jsonDeserializationContext) -> {
-                try {
-                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                    return LocalDate.parse(json.getAsString(), formatter);
-                } catch (Exception ex) {
-                    return LocalDate.now();
-                }
-            });
-        gson = gsonBuilder.create();
+    /**
+     * A utf-8 char takes at most 3 bytes, so names of this length always fit the redis value encoding.
+     */
+    private static final int MAX_NAME_LENGTH = WeatherObjectCodec.MAX_STRING_BYTES / 3;
+
+    private final WeatherApiClient weatherApiClient;
+    private final ForecastStore forecastStore;
+    private final LocalWeatherCache localCache;
+    private final FreshnessPolicy freshnessPolicy;
+    private final int currentTtlSeconds;
+    private final int batchMaxSize;
+    private final int rangeMaxHours;
+    private final RequestCoalescer<List<WeatherObject>> forecastRequests;
+    private final RequestCoalescer<WeatherObject> currentRequests;
+    private final long upstreamTimeoutMs;
+    private final int staleGraceSeconds;
+    private final int popularCitiesLimit;
+    private final long popularCitiesDays;
+    private final PopularityTracker popularityTracker;
+    private final ThreadPoolExecutor refreshExecutor;
+    private final ThreadPoolExecutor storeWriteExecutor;
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+    private final Counter staleServed;
+    private final Counter refreshRejected;
+    private final Counter storeWriteRejected;
+    private final LogSampler refreshFailures = new LogSampler();
+    private final LogSampler storeWriteFailures = new LogSampler();
+
+    public WeatherService(
+        WeatherApiClient weatherApiClient,
+        LocalWeatherCache localCache,
+        FreshnessPolicy freshnessPolicy,
+        ForecastStore forecastStore,
+        MeterRegistry meterRegistry
+    ) {
+        this.weatherApiClient = weatherApiClient;
+        this.localCache = localCache;
+        this.freshnessPolicy = freshnessPolicy;
+        this.forecastStore = forecastStore;
+        upstreamTimeoutMs = EnvUtils.getLong("UPSTREAM_TIMEOUT_MS", 10_000);
+        forecastRequests = new RequestCoalescer<>(meterRegistry, "forecast", Duration.ofMillis(upstreamTimeoutMs));
+        currentRequests = new RequestCoalescer<>(meterRegistry, "current", Duration.ofMillis(upstreamTimeoutMs));
+        currentTtlSeconds = EnvUtils.getInt("CURRENT_TTL_SECONDS", 300);
+        batchMaxSize = EnvUtils.getInt("BATCH_MAX_SIZE", 1000);
+        rangeMaxHours = EnvUtils.getInt("RANGE_MAX_HOURS", 14 * 24);
+        staleGraceSeconds = EnvUtils.getInt("FORECAST_STALE_GRACE_SECONDS", 600);
+        popularCitiesLimit = EnvUtils.getInt("TOP_CITIES_REFRESH_COUNT", 50);
+        popularCitiesDays = EnvUtils.getLong("TOP_CITIES_REFRESH_DAYS", 3);
+        popularityTracker = new PopularityTracker(EnvUtils.getInt("TOP_CITIES_TRACKED_MAX", 10_000));
+        refreshExecutor = buildExecutor(
+            "forecast-refresh-",
+            EnvUtils.getInt("REFRESH_THREADS", 4),
+            EnvUtils.getInt("REFRESH_QUEUE_SIZE", 200)
+        );
+        storeWriteExecutor = buildExecutor(
+            "store-write-",
+            EnvUtils.getInt("STORE_WRITE_THREADS", 4),
+            EnvUtils.getInt("STORE_WRITE_QUEUE_SIZE", 1000)
+        );
+        staleServed = meterRegistry.counter("weather.forecast.stale_served");
+        refreshRejected = meterRegistry.counter("weather.forecast.refresh_rejected");
+        storeWriteRejected = meterRegistry.counter("weather.store.write_rejected");
     }
 
-    public void saveWeather(WeatherObject weatherObject) throws ValidationException {
+    public void validateWeather(WeatherObject weatherObject) throws ValidationException {
         if (weatherObject == null) {
             throw new ValidationException("Weather object missing!");
         }
@@ -93,141 +132,688 @@ public class WeatherService {
         if (weatherObject.getDate() == null) {
             throw new ValidationException("Date is missing!");
         }
+        if (weatherObject.getCity().length() > MAX_NAME_LENGTH) {
+            throw new ValidationException("City is too long, max length is " + MAX_NAME_LENGTH);
+        }
+        if (weatherObject.getUnit() != null && weatherObject.getUnit().length() > MAX_NAME_LENGTH) {
+            throw new ValidationException("Unit is too long, max length is " + MAX_NAME_LENGTH);
+        }
+    }
+
+    public void saveWeather(WeatherObject weatherObject) throws ValidationException {
+        validateWeather(weatherObject);
+
+        String key = ForecastKeys.hourKey(weatherObject.getCity(), weatherObject.getDate());
+        int ttl = freshnessPolicy.pushedTtlSeconds();
 
-        String body = gson.toJson(weatherObject);
-        String key = buildKey(weatherObject.getCity(), weatherObject.getDate());
+        log.debug("Saving forecast by key {}: {}", key, weatherObject);
+        forecastStore.save(weatherObject, ttl);
+        log.debug("Forecast saved");
+        localCache.put(key, weatherObject, Duration.ofSeconds(ttl));
+    }
 
-        log.info("Connecting to redis");
-        try (Jedis jedis = jedisPool.getResource()) {
-            log.info(String.format("Saving forecast to redis by key %s: %s", key, body));
-            jedis.set(key, body);
-            log.info("Forecast saved");
+    /**
+     * Stores validated pushed forecasts with one store write. Local cache entries of these hours are dropped
+     * instead of filled, so a large push does not evict the hot set.
+     */
+    public void savePushed(List<WeatherObject> weatherObjects) {
+        if (weatherObjects.isEmpty()) {
+            return;
+        }
+        int[] ttls = new int[weatherObjects.size()];
+        Arrays.fill(ttls, freshnessPolicy.pushedTtlSeconds());
+        forecastStore.saveAll(weatherObjects, ttls);
+        for (WeatherObject weatherObject : weatherObjects) {
+            localCache.invalidate(ForecastKeys.hourKey(weatherObject.getCity(), weatherObject.getDate()));
         }
     }
 
+    /**
+     * Stores forecasts fetched from the weather api with their freshness ttl. Upstream wins: an hour pushed
+     * earlier is overwritten, so pushed values only outlive upstream ones for hours the api doesn't cover.
+     * <p>
+     * The local cache is filled right away, the store is written on the store write executor.
+     */
+    public void saveWeather(List<WeatherObject> weatherObjects) {
+        if (weatherObjects.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int[] ttls = new int[weatherObjects.size()];
+        int[] storeTtls = new int[weatherObjects.size()];
+        for (int i = 0; i < ttls.length; i++) {
+            ttls[i] = freshnessPolicy.forecastTtlSeconds(weatherObjects.get(i).getDate(), now);
+            storeTtls[i] = ttls[i] + staleGraceSeconds;
+        }
+
+        for (int i = 0; i < ttls.length; i++) {
+            WeatherObject weatherObject = weatherObjects.get(i);
+            localCache.put(
+                ForecastKeys.hourKey(weatherObject.getCity(), weatherObject.getDate()),
+                weatherObject,
+                Duration.ofSeconds(ttls[i])
+            );
+        }
+        writeStoreAsync(() -> {
+            forecastStore.saveAll(weatherObjects, storeTtls);
+            log.info("Saved {} forecasts", weatherObjects.size());
+        });
+    }
+
     public WeatherObject getForecast(String city, LocalDateTime dateTime) throws IOException, ValidationException {
+        WeatherObject weatherObject = findForecast(city, dateTime);
+        return weatherObject != null ? weatherObject : await(fetchForecastHour(city, dateTime));
+    }
+
+    /**
+     * Looks the hour up in the local cache and the store, returns null when it has to be fetched.
+     */
+    public WeatherObject findForecast(String city, LocalDateTime dateTime) throws ValidationException {
         if (StringUtils.isBlank(city)) {
             throw new ValidationException("City can't be blank!");
         }
         Objects.requireNonNull(dateTime, "Date is missing!");
-        WeatherObject weatherObject = getForecastFromRedis(city, dateTime);
-        if (weatherObject != null) {
+        popularityTracker.record(city);
+        return getForecastFromStore(city, dateTime);
+    }
+
+    public CompletableFuture<WeatherObject> fetchForecastHour(String city, LocalDateTime dateTime) {
+        long days = daysUntil(dateTime);
+        log.debug("Searching forecast for days: {}", days);
+
+        return fetchForecast(city, days).thenApply(forecasts -> {
+            WeatherObject weatherObject = findHour(forecasts, dateTime);
+            if (weatherObject == null) {
+                throw new CompletionException(new ValidationException("No forecast available for " + dateTime));
+            }
             return weatherObject;
+        });
+    }
+
+    public List<ForecastResult> getForecasts(List<ForecastRequest> requests) throws ValidationException {
+        ForecastResult[] results = new ForecastResult[requests == null ? 0 : requests.size()];
+        try {
+            resolveForecasts(requests, (index, result) -> results[index] = result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Writes results to the consumer in the order they are resolved: cached ones first,
+     * then each city as soon as its upstream call completes.
+     */
+    public void streamForecasts(List<ForecastRequest> requests, IOConsumer<? super ForecastResult> consumer)
+        throws IOException, ValidationException {
+        resolveForecasts(requests, (index, result) -> consumer.accept(result));
+    }
+
+    public void validateBatch(List<ForecastRequest> requests) throws ValidationException {
+        if (requests == null || requests.isEmpty()) {
+            throw new ValidationException("Forecast requests are missing!");
+        }
+        if (requests.size() > batchMaxSize) {
+            throw new ValidationException("Too many forecast requests, max is " + batchMaxSize);
+        }
+    }
+
+    /**
+     * Looks the batch up in the local cache and the store, which blocks, and starts one upstream fetch per
+     * city for the rest without waiting for them.
+     */
+    public BatchLookup lookupForecasts(List<ForecastRequest> requests) throws ValidationException {
+        validateBatch(requests);
+        ForecastResult[] found = new ForecastResult[requests.size()];
+        Map<String, ForecastRequest> missedKeys = new LinkedHashMap<>();
+        String[] keys = new String[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            ForecastRequest request = requests.get(i);
+            if (request == null || StringUtils.isBlank(request.getCity()) || request.getDt() == null) {
+                found[i] = ForecastResult.failure(request == null ? new ForecastRequest() : request,
+                    "City and date are required!");
+                continue;
+            }
+            popularityTracker.record(request.getCity());
+            keys[i] = ForecastKeys.hourKey(request.getCity(), request.getDt());
+            WeatherObject weatherObject = localCache.get(keys[i]);
+            if (weatherObject != null) {
+                found[i] = ForecastResult.success(request, weatherObject);
+            } else {
+                missedKeys.put(keys[i], request);
+            }
         }
 
-        long days = LocalDateTime.now().until(dateTime, ChronoUnit.DAYS) + 2;
-        log.info("Searching forecast for days: " + days);
+        Map<String, WeatherObject> fromStore = getManyFromStore(missedKeys);
+        Map<String, Long> daysByCity = new HashMap<>();
+        Map<String, List<Integer>> pendingByCity = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (found[i] != null) {
+                continue;
+            }
+            ForecastRequest request = requests.get(i);
+            WeatherObject weatherObject = fromStore.get(keys[i]);
+            if (weatherObject != null) {
+                found[i] = ForecastResult.success(request, weatherObject);
+            } else {
+                daysByCity.merge(request.getCity(), daysUntil(request.getDt()), Math::max);
+                pendingByCity.computeIfAbsent(request.getCity(), city -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<CityFetch> fetches = new ArrayList<>(daysByCity.size());
+        if (!daysByCity.isEmpty()) {
+            log.info("Fetching forecasts for {} cities", daysByCity.size());
+        }
+        daysByCity.forEach((city, days) -> {
+            List<Integer> indexes = pendingByCity.get(city);
+            CompletableFuture<List<ForecastResult>> results = fetchForecast(city, days).handle((forecasts, error) -> {
+                List<ForecastResult> cityResults = new ArrayList<>(indexes.size());
+                for (int i : indexes) {
+                    ForecastRequest request = requests.get(i);
+                    WeatherObject weatherObject = error == null ? findHour(forecasts, request.getDt()) : null;
+                    if (weatherObject != null) {
+                        cityResults.add(ForecastResult.success(request, weatherObject));
+                    } else {
+                        cityResults.add(ForecastResult.failure(request, error != null
+                            ? failureMessage(error)
+                            : "No forecast available for " + request.getDt()));
+                    }
+                }
+                return cityResults;
+            });
+            fetches.add(new CityFetch(indexes, results));
+        });
+        return new BatchLookup(found, fetches);
+    }
+
+    private void resolveForecasts(List<ForecastRequest> requests, ResultConsumer consumer)
+        throws IOException, ValidationException {
+        BatchLookup lookup = lookupForecasts(requests);
+        for (int i = 0; i < lookup.found.length; i++) {
+            if (lookup.found[i] != null) {
+                consumer.accept(i, lookup.found[i]);
+            }
+        }
+
+        BlockingQueue<CityFetch> completed = new LinkedBlockingQueue<>();
+        for (CityFetch fetch : lookup.fetches) {
+            fetch.results.whenComplete((result, error) -> completed.add(fetch));
+        }
+        for (int remaining = lookup.fetches.size(); remaining > 0; remaining--) {
+            CityFetch fetch = takeCompleted(completed);
+            List<ForecastResult> results = fetch.results.join();
+            for (int k = 0; k < results.size(); k++) {
+                consumer.accept(fetch.indexes.get(k), results.get(k));
+            }
+        }
+    }
+
+    private static <T> T takeCompleted(BlockingQueue<T> completed) throws IOException {
+        try {
+            return completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for forecasts");
+        }
+    }
+
+    public void validateRange(String city, LocalDateTime from, LocalDateTime to) throws ValidationException {
+        if (StringUtils.isBlank(city)) {
+            throw new ValidationException("City can't be blank!");
+        }
+        if (from == null || to == null) {
+            throw new ValidationException("Range bounds are missing!");
+        }
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Range start must be before its end!");
+        }
+        if (from.until(to, ChronoUnit.HOURS) > rangeMaxHours) {
+            throw new ValidationException("Range is too long, max hours is " + rangeMaxHours);
+        }
+    }
+
+    /**
+     * Writes hourly forecasts of [from, to) to the consumer in order. Hours found in caches before the first
+     * miss are written right away, the rest after a single upstream call covering all missing days.
+     */
+    public void getRange(String city, LocalDateTime from, LocalDateTime to, IOConsumer<? super WeatherObject> consumer)
+        throws IOException, ValidationException {
+        RangeLookup lookup = lookupRange(city, from, to);
+        for (WeatherObject weatherObject : lookup.leading) {
+            consumer.accept(weatherObject);
+        }
+        for (WeatherObject weatherObject : await(lookup.rest)) {
+            consumer.accept(weatherObject);
+        }
+    }
+
+    /**
+     * Looks the hours of [from, to) up in the local cache and the store, which blocks. If any is missing,
+     * a single upstream call covering all missing days is started without waiting for it.
+     */
+    public RangeLookup lookupRange(String city, LocalDateTime from, LocalDateTime to) throws ValidationException {
+        validateRange(city, from, to);
+        popularityTracker.record(city);
+        LocalDateTime first = from.truncatedTo(ChronoUnit.HOURS);
+        int hours = (int) first.until(to, ChronoUnit.HOURS) + (to.getMinute() > 0 ? 1 : 0);
+
+        WeatherObject[] found = new WeatherObject[hours];
+        String[] keys = new String[hours];
+        boolean missed = false;
+        for (int i = 0; i < hours; i++) {
+            keys[i] = ForecastKeys.hourKey(city, first.plusHours(i));
+            found[i] = localCache.get(keys[i]);
+            missed |= found[i] == null;
+        }
+        if (missed) {
+            List<StoredForecast> stored = forecastStore.getRange(city, first, first.plusHours(hours));
+            for (int i = 0; i < hours; i++) {
+                if (found[i] == null && stored.get(i) != null) {
+                    found[i] = onStoreHit(keys[i], first.plusHours(i), stored.get(i));
+                }
+            }
+        }
+
+        int leading = 0;
+        while (leading < hours && found[leading] != null) {
+            leading++;
+        }
+        List<WeatherObject> leadingHours = Arrays.asList(found).subList(0, leading);
+        if (leading == hours) {
+            return new RangeLookup(leadingHours, CompletableFuture.completedFuture(List.of()));
+        }
+
+        log.info("Fetching {} missing hours of {}", hours - leading, city);
+        int firstMissing = leading;
+        CompletableFuture<List<WeatherObject>> rest = fetchForecast(city, daysUntil(first.plusHours(hours - 1)))
+            .thenApply(forecasts -> {
+                List<WeatherObject> result = new ArrayList<>(hours - firstMissing);
+                for (int i = firstMissing; i < hours; i++) {
+                    WeatherObject weatherObject = found[i] != null ? found[i] : findHour(forecasts, first.plusHours(i));
+                    if (weatherObject != null) {
+                        result.add(weatherObject);
+                    }
+                }
+                return result;
+            });
+        return new RangeLookup(leadingHours, rest);
+    }
 
+    private CompletableFuture<List<WeatherObject>> fetchForecast(String city, long days) {
         Map<String, String> params = new HashMap<>();
-        addDefaultParameters(params);
         params.put("q", city);
         params.put("days", String.valueOf(days));
 
-        WeatherApiResponse apiResponse = makeRequest("/forecast.json", params);
+        Span span = Tracing.span("upstream");
+        return forecastRequests.execute(
+            buildRequestKey("/forecast.json", params),
+            () -> weatherApiClient.get("/forecast.json", params).thenApply(apiResponse -> {
+                List<WeatherObject> result = toWeatherObjects(city, apiResponse);
+                saveWeather(result);
+                return result;
+            })
+        ).whenComplete((result, error) -> span.end());
+    }
 
-        ForecastDay forecastDay = apiResponse.getForecast().getForecastday().get(apiResponse.getForecast().getForecastday().size() - 1);
-        TempHour tempHour = forecastDay.getHour().get(dateTime.getHour());
+    private WeatherObject findHour(List<WeatherObject> forecasts, LocalDateTime dateTime) {
+        LocalDateTime hour = dateTime.truncatedTo(ChronoUnit.HOURS);
+        for (WeatherObject forecast : forecasts) {
+            if (hour.equals(forecast.getDate())) {
+                return forecast;
+            }
+        }
+        return null;
+    }
 
-        weatherObject = new WeatherObject(
-            city,
-            tempHour.getTemp_c(),
-            "celsius",
-            dateTime
-        );
-        saveWeather(weatherObject);
+    private long daysUntil(LocalDateTime dateTime) {
+        return LocalDateTime.now().until(dateTime, ChronoUnit.DAYS) + 2;
+    }
+
+    private List<WeatherObject> toWeatherObjects(String city, WeatherApiResponse apiResponse) {
+        List<WeatherObject> result = new ArrayList<>();
+        for (ForecastDay forecastDay : apiResponse.getForecast().getForecastday()) {
+            for (TempHour tempHour : forecastDay.getHour()) {
+                result.add(new WeatherObject(city, tempHour.getTemp_c(), "celsius", tempHour.getTime()));
+            }
+        }
+        return result;
+    }
+
+    private WeatherObject getForecastFromStore(String city, LocalDateTime date) {
+        String key = ForecastKeys.hourKey(city, date);
+        WeatherObject weatherObject = localCache.get(key);
+        if (weatherObject != null) {
+            return weatherObject;
+        }
+
+        StoredForecast stored = forecastStore.get(city, date);
+        if (stored == null) {
+            log.debug("No forecast were found by key {}", key);
+            return null;
+        }
+        log.debug("Got forecast from store {}", stored.getForecast());
+        return onStoreHit(key, date, stored);
+    }
+
+    /**
+     * Entries in the last {@code staleGraceSeconds} of their store ttl are stale: they are still served,
+     * but not promoted to the local cache and a background refresh is triggered.
+     * <p>
+     * Returns the forecast to serve, or null if the entry can't be used and has to be fetched.
+     */
+    private WeatherObject onStoreHit(String key, LocalDateTime date, StoredForecast stored) {
+        WeatherObject weatherObject = stored.getForecast();
+        long ttl = stored.getTtlSeconds();
+        if (ttl < 0) {
+            return onUnexpiringHit(date, weatherObject);
+        }
+        if (ttl > staleGraceSeconds) {
+            localCache.put(key, weatherObject, Duration.ofSeconds(ttl - staleGraceSeconds));
+        } else {
+            onStaleHit(weatherObject);
+        }
+        return weatherObject;
+    }
+
+    /**
+     * Entries without expiry were written before freshness ttls, some of them under 12-hour keys. One stored
+     * for another hour is a miss, the rest are served as stale and stored again with an expiry.
+     */
+    private WeatherObject onUnexpiringHit(LocalDateTime date, WeatherObject weatherObject) {
+        if (weatherObject.getDate() == null
+            || !weatherObject.getDate().truncatedTo(ChronoUnit.HOURS).equals(date.truncatedTo(ChronoUnit.HOURS))) {
+            return null;
+        }
+        forecastStore.save(weatherObject, freshnessPolicy.forecastTtlSeconds(weatherObject.getDate()));
+        onStaleHit(weatherObject);
         return weatherObject;
     }
 
-    private WeatherObject getForecastFromRedis(String city, LocalDateTime date) {
-        String key = buildKey(city, date);
-        log.info("Connecting to redis");
-        try (Jedis jedis = jedisPool.getResource()) {
-            log.info("Trying to get forecast from redis by key " + key);
-            String body = jedis.get(key);
-            if (StringUtils.isBlank(body)) {
-                log.info("No forecast were found in redis by key " + key);
-                return null;
+    private void onStaleHit(WeatherObject weatherObject) {
+        staleServed.increment();
+        if (weatherObject.getDate() != null && weatherObject.getDate().isAfter(LocalDateTime.now())) {
+            refreshAsync(weatherObject.getCity(), daysUntil(weatherObject.getDate()));
+        }
+    }
+
+    public void refreshPopularCities() {
+        List<String> cities = popularityTracker.topAndReset(popularCitiesLimit);
+        if (!cities.isEmpty()) {
+            log.info("Refreshing forecasts for {} popular cities", cities.size());
+        }
+        for (String city : cities) {
+            refreshAsync(city, popularCitiesDays);
+        }
+    }
+
+    private void refreshAsync(String city, long days) {
+        String refreshKey = city + ":" + days;
+        if (!pendingRefreshes.add(refreshKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    fetchForecast(city, days).get(upstreamTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    long suppressed = refreshFailures.sample();
+                    if (suppressed >= 0) {
+                        log.warn("Failed to refresh forecast for {}: {}, {} similar suppressed",
+                            city, e.getMessage(), suppressed);
+                    }
+                } finally {
+                    pendingRefreshes.remove(refreshKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingRefreshes.remove(refreshKey);
+            refreshRejected.increment();
+        }
+    }
+
+    /**
+     * Runs a store write off the calling thread, usually the http client's parse executor: a slow store must
+     * not hold up upstream responses, and a failed write must not fail a successful fetch. Failed and rejected
+     * writes are only logged and counted, the next miss fetches the forecast again.
+     */
+    private void writeStoreAsync(Runnable write) {
+        try {
+            storeWriteExecutor.execute(() -> {
+                try {
+                    write.run();
+                } catch (RuntimeException e) {
+                    long suppressed = storeWriteFailures.sample();
+                    if (suppressed >= 0) {
+                        log.warn("Failed to write fetched weather to the store: {}, {} similar suppressed",
+                            e.toString(), suppressed);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            storeWriteRejected.increment();
+        }
+    }
+
+    private Map<String, WeatherObject> getManyFromStore(Map<String, ForecastRequest> requestsByKey) {
+        Map<String, WeatherObject> result = new HashMap<>();
+        if (requestsByKey.isEmpty()) {
+            return result;
+        }
+        List<String> keys = new ArrayList<>(requestsByKey.keySet());
+        List<ForecastRequest> requests = new ArrayList<>(requestsByKey.values());
+        List<StoredForecast> stored = forecastStore.getAll(requests);
+        for (int i = 0; i < keys.size(); i++) {
+            WeatherObject weatherObject = stored.get(i) == null
+                ? null
+                : onStoreHit(keys.get(i), requests.get(i).getDt(), stored.get(i));
+            if (weatherObject != null) {
+                result.put(keys.get(i), weatherObject);
             }
-            log.info("Got forecast from redis " + body);
-            return gson.fromJson(body, WeatherObject.class);
         }
+        log.debug("Got {} of {} forecasts from store", result.size(), keys.size());
+        return result;
     }
 
     public WeatherObject getCurrent(String city) throws IOException, ValidationException {
+        WeatherObject weatherObject = findCurrent(city);
+        return weatherObject != null ? weatherObject : await(fetchCurrent(city));
+    }
+
+    /**
+     * Looks current conditions up in the local cache and the store, returns null when they have to be fetched.
+     */
+    public WeatherObject findCurrent(String city) throws ValidationException {
         if (StringUtils.isBlank(city)) {
             throw new ValidationException("City can't be blank!");
         }
+        String key = ForecastKeys.currentKey(city);
+        WeatherObject weatherObject = localCache.get(key);
+        if (weatherObject != null) {
+            return weatherObject;
+        }
+        weatherObject = forecastStore.getCurrent(city);
+        if (weatherObject != null) {
+            localCache.put(key, weatherObject, Duration.ofSeconds(currentTtlSeconds));
+        }
+        return weatherObject;
+    }
+
+    public CompletableFuture<WeatherObject> fetchCurrent(String city) {
         Map<String, String> params = new HashMap<>();
-        addDefaultParameters(params);
         params.put("q", city);
 
-        WeatherApiResponse apiResponse = makeRequest("/current.json", params);
-
-        return new WeatherObject(
-            apiResponse.getLocation().getName(),
-            apiResponse.getCurrent().getTemp_c(),
-            "celsius"
-        );
+        Span span = Tracing.span("upstream");
+        return currentRequests.execute(
+            buildRequestKey("/current.json", params),
+            () -> weatherApiClient.get("/current.json", params).thenApply(apiResponse -> {
+                WeatherObject result = new WeatherObject(
+                    apiResponse.getLocation().getName(),
+                    apiResponse.getCurrent().getTemp_c(),
+                    "celsius"
+                );
+                localCache.put(ForecastKeys.currentKey(city), result, Duration.ofSeconds(currentTtlSeconds));
+                writeStoreAsync(() -> forecastStore.saveCurrent(city, result, currentTtlSeconds));
+                return result;
+            })
+        ).whenComplete((result, error) -> span.end());
     }
 
-    private WeatherApiResponse makeRequest(String path, Map<String, String> params) throws IOException {
-        URL url = new URL(baseUrl + path);
-        HttpURLConnection con = (HttpURLConnection) url.openConnection();
-        con.setRequestMethod("GET");
-        con.setDoOutput(true);
+    /**
+     * Waits for an upstream call no longer than UPSTREAM_TIMEOUT_MS, unwrapping its failure.
+     */
+    private <T> T await(CompletableFuture<T> future) throws IOException, ValidationException {
+        try {
+            return future.get(upstreamTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for weather api");
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out waiting for weather api", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            }
+            if (cause instanceof TimeoutException) {
+                throw new IOException("Timed out waiting for weather api", cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
 
-        try (DataOutputStream out = new DataOutputStream(con.getOutputStream())) {
-            out.writeBytes(ParameterStringBuilder.getParamsString(params));
-            out.flush();
+    private static String failureMessage(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return "Timed out waiting for weather api";
+        }
+        if (cause instanceof UncheckedIOException) {
+            return cause.getCause().getMessage();
         }
+        return cause.getMessage();
+    }
 
-        int status = con.getResponseCode();
-        Reader streamReader = null;
+    private String buildRequestKey(String path, Map<String, String> params) {
+        return path + new TreeMap<>(params);
+    }
 
-        if (status > 299) {
-            streamReader = new InputStreamReader(con.getErrorStream());
-        } else {
-            streamReader = new InputStreamReader(con.getInputStream());
+    private ThreadPoolExecutor buildExecutor(String threadPrefix, int threads, int queueSize) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, threadPrefix + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+        storeWriteExecutor.shutdown();
+    }
+
+    /**
+     * A batch after the cache and store lookup. Upstream fetches complete with a result per pending request
+     * and never fail.
+     */
+    public static class BatchLookup {
+        private final ForecastResult[] found;
+        private final List<CityFetch> fetches;
+
+        private BatchLookup(ForecastResult[] found, List<CityFetch> fetches) {
+            this.found = found;
+            this.fetches = fetches;
         }
 
-        StringBuffer content = new StringBuffer();
-        try (BufferedReader in = new BufferedReader(streamReader)) {
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                content.append(inputLine);
+        /**
+         * Results found in caches, in request order.
+         */
+        public List<ForecastResult> found() {
+            List<ForecastResult> result = new ArrayList<>();
+            for (ForecastResult forecastResult : found) {
+                if (forecastResult != null) {
+                    result.add(forecastResult);
+                }
             }
+            return result;
         }
-        con.disconnect();
 
-        log.info("Got weather api response");
+        /**
+         * Results of each upstream fetch, completing independently.
+         */
+        public List<CompletableFuture<List<ForecastResult>>> fetches() {
+            List<CompletableFuture<List<ForecastResult>>> result = new ArrayList<>(fetches.size());
+            for (CityFetch fetch : fetches) {
+                result.add(fetch.results);
+            }
+            return result;
+        }
 
-        if (status > 299) {
-            throw new RuntimeException(content.toString());
+        /**
+         * All results in request order, once every fetch has completed.
+         */
+        public CompletableFuture<List<ForecastResult>> all() {
+            return CompletableFuture.allOf(fetches().toArray(new CompletableFuture[0])).thenApply(done -> {
+                ForecastResult[] results = found.clone();
+                for (CityFetch fetch : fetches) {
+                    List<ForecastResult> cityResults = fetch.results.join();
+                    for (int k = 0; k < cityResults.size(); k++) {
+                        results[fetch.indexes.get(k)] = cityResults.get(k);
+                    }
+                }
+                return List.of(results);
+            });
         }
-        return gson.fromJson(content.toString(), WeatherApiResponse.class);
     }
 
-    private void addDefaultParameters(Map<String, String> params) {
-        params.put("key", apiKey);
-        params.put("aqi", "no");
+    private static class CityFetch {
+        private final List<Integer> indexes;
+        private final CompletableFuture<List<ForecastResult>> results;
+
+        private CityFetch(List<Integer> indexes, CompletableFuture<List<ForecastResult>> results) {
+            this.indexes = indexes;
+            this.results = results;
+        }
     }
 
-    private String buildKey(String city, LocalDateTime date) {
-        return city + Objects.requireNonNull(date, "Date is missing!").format(formatter);
+    /**
+     * A range after the cache and store lookup: the hours found before the first miss, and the rest once
+     * the upstream call completes.
+     */
+    public static class RangeLookup {
+        private final List<WeatherObject> leading;
+        private final CompletableFuture<List<WeatherObject>> rest;
+
+        private RangeLookup(List<WeatherObject> leading, CompletableFuture<List<WeatherObject>> rest) {
+            this.leading = leading;
+            this.rest = rest;
+        }
+
+        public List<WeatherObject> leading() {
+            return leading;
+        }
+
+        public CompletableFuture<List<WeatherObject>> rest() {
+            return rest;
+        }
     }
 
-    private JedisPoolConfig buildPoolConfig() {
-        final JedisPoolConfig poolConfig = new JedisPoolConfig();
-        poolConfig.setMaxTotal(128);
-        poolConfig.setMaxIdle(128);
-        poolConfig.setMinIdle(16);
-        poolConfig.setTestOnBorrow(true);
-        poolConfig.setTestOnReturn(true);
-        poolConfig.setTestWhileIdle(true);
-        poolConfig.setMinEvictableIdleTimeMillis(Duration.ofSeconds(60).toMillis());
-        poolConfig.setTimeBetweenEvictionRunsMillis(Duration.ofSeconds(30).toMillis());
-        poolConfig.setNumTestsPerEvictionRun(3);
-        poolConfig.setBlockWhenExhausted(true);
-        return poolConfig;
+    @FunctionalInterface
+    private interface ResultConsumer {
+        void accept(int index, ForecastResult result) throws IOException;
     }
 }
@@ -0,0 +1,38 @@
+package ru.pobopo.weather.store;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import ru.pobopo.weather.model.WeatherObject;
+
+/**
+ * Heap storage of current conditions for the embedded stores, there is at most one entry per city.
+ */
+class CurrentConditions {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    WeatherObject get(String city) {
+        Entry entry = entries.get(city);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis <= System.currentTimeMillis()) {
+            entries.remove(city, entry);
+            return null;
+        }
+        return entry.weatherObject;
+    }
+
+    void put(String city, WeatherObject weatherObject, int ttlSeconds) {
+        entries.put(city, new Entry(weatherObject, System.currentTimeMillis() + ttlSeconds * 1000L));
+    }
+
+    private static class Entry {
+        private final WeatherObject weatherObject;
+        private final long expiresAtMillis;
+
+        private Entry(WeatherObject weatherObject, long expiresAtMillis) {
+            this.weatherObject = weatherObject;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
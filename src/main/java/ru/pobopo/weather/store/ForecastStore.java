@@ -0,0 +1,44 @@
+package ru.pobopo.weather.store;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.WeatherObject;
+
+/**
+ * Shared storage of hourly forecasts and current conditions.
+ */
+public interface ForecastStore {
+    StoredForecast get(String city, LocalDateTime date);
+
+    /**
+     * Returns stored forecasts in the order of requests, null for missing ones.
+     */
+    List<StoredForecast> getAll(List<ForecastRequest> requests);
+
+    /**
+     * Returns stored forecasts for every hour of [from, to), null for missing ones.
+     */
+    default List<StoredForecast> getRange(String city, LocalDateTime from, LocalDateTime to) {
+        List<ForecastRequest> requests = new ArrayList<>();
+        for (LocalDateTime hour = from; hour.isBefore(to); hour = hour.plusHours(1)) {
+            requests.add(new ForecastRequest(city, hour));
+        }
+        return getAll(requests);
+    }
+
+    void save(WeatherObject weatherObject, int ttlSeconds);
+
+    void saveAll(List<WeatherObject> weatherObjects, int[] ttlSeconds);
+
+    WeatherObject getCurrent(String city);
+
+    void saveCurrent(String city, WeatherObject weatherObject, int ttlSeconds);
+
+    /**
+     * Releases connections or memory held by the store, called on shutdown.
+     */
+    default void close() {
+    }
+}
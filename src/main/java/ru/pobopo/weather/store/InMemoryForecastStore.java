@@ -0,0 +1,93 @@
+package ru.pobopo.weather.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.pobopo.weather.cache.ForecastKeys;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.WeatherObject;
+
+/**
+ * Heap store for single node deployments and local runs without redis.
+ */
+public class InMemoryForecastStore implements ForecastStore {
+    private final Cache<String, WeatherObject> cache;
+    private final Policy.VarExpiration<String, WeatherObject> expiration;
+
+    public InMemoryForecastStore(long maxSize) {
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<String, WeatherObject>() {
+                @Override
+                public long expireAfterCreate(String key, WeatherObject value, long currentTime) {
+                    return Long.MAX_VALUE;
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, WeatherObject value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String key, WeatherObject value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+        expiration = cache.policy().expireVariably().orElseThrow();
+    }
+
+    @Override
+    public StoredForecast get(String city, LocalDateTime date) {
+        return get(ForecastKeys.hourKey(city, date));
+    }
+
+    @Override
+    public List<StoredForecast> getAll(List<ForecastRequest> requests) {
+        List<StoredForecast> result = new ArrayList<>(requests.size());
+        for (ForecastRequest request : requests) {
+            result.add(get(request.getCity(), request.getDt()));
+        }
+        return result;
+    }
+
+    @Override
+    public void save(WeatherObject weatherObject, int ttlSeconds) {
+        put(ForecastKeys.hourKey(weatherObject.getCity(), weatherObject.getDate()), weatherObject, ttlSeconds);
+    }
+
+    @Override
+    public void saveAll(List<WeatherObject> weatherObjects, int[] ttlSeconds) {
+        for (int i = 0; i < weatherObjects.size(); i++) {
+            save(weatherObjects.get(i), ttlSeconds[i]);
+        }
+    }
+
+    @Override
+    public WeatherObject getCurrent(String city) {
+        return cache.getIfPresent(ForecastKeys.currentKey(city));
+    }
+
+    @Override
+    public void saveCurrent(String city, WeatherObject weatherObject, int ttlSeconds) {
+        put(ForecastKeys.currentKey(city), weatherObject, ttlSeconds);
+    }
+
+    private StoredForecast get(String key) {
+        WeatherObject weatherObject = cache.getIfPresent(key);
+        if (weatherObject == null) {
+            return null;
+        }
+        long ttl = expiration.getExpiresAfter(key).map(Duration::getSeconds).orElse(-1L);
+        return new StoredForecast(weatherObject, ttl);
+    }
+
+    private void put(String key, WeatherObject weatherObject, int ttlSeconds) {
+        expiration.put(key, weatherObject, Duration.ofSeconds(ttlSeconds));
+    }
+}
@@ -0,0 +1,129 @@
+package ru.pobopo.weather.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.tracing.Span;
+import ru.pobopo.weather.tracing.Tracing;
+
+/**
+ * Records latency of every store operation and hit/miss counts of reads, tagged with the backend name.
+ * Operations are also traced as {@code store.<operation>} spans.
+ */
+public class MeteredForecastStore implements ForecastStore {
+    private final ForecastStore delegate;
+    private final Timer getTimer;
+    private final Timer getAllTimer;
+    private final Timer getRangeTimer;
+    private final Timer saveTimer;
+    private final Timer saveAllTimer;
+    private final Timer getCurrentTimer;
+    private final Timer saveCurrentTimer;
+    private final Counter hits;
+    private final Counter misses;
+
+    public MeteredForecastStore(ForecastStore delegate, String backend, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        getTimer = timer(meterRegistry, backend, "get");
+        getAllTimer = timer(meterRegistry, backend, "get_all");
+        getRangeTimer = timer(meterRegistry, backend, "get_range");
+        saveTimer = timer(meterRegistry, backend, "save");
+        saveAllTimer = timer(meterRegistry, backend, "save_all");
+        getCurrentTimer = timer(meterRegistry, backend, "get_current");
+        saveCurrentTimer = timer(meterRegistry, backend, "save_current");
+        hits = meterRegistry.counter("weather.store.reads", "backend", backend, "result", "hit");
+        misses = meterRegistry.counter("weather.store.reads", "backend", backend, "result", "miss");
+    }
+
+    public ForecastStore getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public StoredForecast get(String city, LocalDateTime date) {
+        StoredForecast result = measure(getTimer, "store.get", () -> delegate.get(city, date));
+        countRead(result);
+        return result;
+    }
+
+    @Override
+    public List<StoredForecast> getAll(List<ForecastRequest> requests) {
+        return countReads(getAllTimer, "store.get_all", () -> delegate.getAll(requests));
+    }
+
+    @Override
+    public List<StoredForecast> getRange(String city, LocalDateTime from, LocalDateTime to) {
+        return countReads(getRangeTimer, "store.get_range", () -> delegate.getRange(city, from, to));
+    }
+
+    @Override
+    public void save(WeatherObject weatherObject, int ttlSeconds) {
+        measure(saveTimer, "store.save", () -> {
+            delegate.save(weatherObject, ttlSeconds);
+            return null;
+        });
+    }
+
+    @Override
+    public void saveAll(List<WeatherObject> weatherObjects, int[] ttlSeconds) {
+        measure(saveAllTimer, "store.save_all", () -> {
+            delegate.saveAll(weatherObjects, ttlSeconds);
+            return null;
+        });
+    }
+
+    @Override
+    public WeatherObject getCurrent(String city) {
+        WeatherObject result = measure(getCurrentTimer, "store.get_current", () -> delegate.getCurrent(city));
+        countRead(result);
+        return result;
+    }
+
+    @Override
+    public void saveCurrent(String city, WeatherObject weatherObject, int ttlSeconds) {
+        measure(saveCurrentTimer, "store.save_current", () -> {
+            delegate.saveCurrent(city, weatherObject, ttlSeconds);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private List<StoredForecast> countReads(Timer timer, String stage, Supplier<List<StoredForecast>> read) {
+        List<StoredForecast> result = measure(timer, stage, read);
+        for (StoredForecast stored : result) {
+            countRead(stored);
+        }
+        return result;
+    }
+
+    private static <T> T measure(Timer timer, String stage, Supplier<T> call) {
+        try (Span span = Tracing.span(stage)) {
+            return timer.record(call);
+        }
+    }
+
+    private void countRead(Object result) {
+        if (result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String backend, String operation) {
+        return Timer.builder("weather.store.latency")
+            .tag("backend", backend)
+            .tag("operation", operation)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
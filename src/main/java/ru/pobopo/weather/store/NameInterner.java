@@ -0,0 +1,52 @@
+package ru.pobopo.weather.store;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int ids to names, starting from zero. Ids of released names are handed out again, so the
+ * id range stays as small as the number of live names.
+ */
+class NameInterner {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private int nextId;
+
+    int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            return ids.computeIfAbsent(name, key -> {
+                int newId = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+                names.put(newId, key);
+                return newId;
+            });
+        }
+    }
+
+    synchronized void release(int id) {
+        String name = names.remove(id);
+        if (name != null) {
+            ids.remove(name);
+            freeIds.push(id);
+        }
+    }
+
+    String name(int id) {
+        return names.get(id);
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,224 @@
+package ru.pobopo.weather.store;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.WeatherObject;
+
+/**
+ * Embedded store keeping hourly forecasts in a direct buffer, outside of the java heap.
+ * <p>
+ * The buffer is an open addressing hash table keyed by city id and epoch hour. Each slot is
+ * {@value #SLOT_SIZE} bytes:
+ * <pre>
+ * long   city id << 32 | epoch hour
+ * float  temperature
+ * int    expires at, seconds since the store was created ({@value #UNUSED} for a never used slot,
+ *        {@value #NO_EXPIRY} for no expiry)
+ * int    unit id, -1 for no unit
+ * int    minute of hour
+ * </pre>
+ * Lookups probe at most {@value #MAX_PROBES} slots. When none of them is free or expired, the entry
+ * closest to expiry is overwritten, so the store never grows past its capacity.
+ * <p>
+ * City and unit names are interned to ids on the heap. Slots are counted per city id, a city's name is
+ * released once no slot refers to it any more. Current conditions are few and kept on the heap too.
+ */
+public class OffHeapForecastStore implements ForecastStore {
+    private static final int SLOT_SIZE = 24;
+    private static final int MAX_PROBES = 16;
+    private static final int KEY_OFFSET = 0;
+    private static final int TEMPERATURE_OFFSET = 8;
+    private static final int EXPIRES_OFFSET = 12;
+    private static final int UNIT_OFFSET = 16;
+    private static final int MINUTE_OFFSET = 20;
+    private static final int UNUSED = 0;
+    private static final int NO_EXPIRY = Integer.MAX_VALUE;
+
+    private final ByteBuffer buffer;
+    private final int mask;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NameInterner cities = new NameInterner();
+    private final NameInterner units = new NameInterner();
+    private final CurrentConditions current = new CurrentConditions();
+    private final long startNanos = System.nanoTime();
+    private int[] citySlots = new int[64];
+
+    public OffHeapForecastStore(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Off heap store capacity must be a power of two: " + capacity);
+        }
+        if ((long) capacity * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off heap store capacity is too large: " + capacity
+                + ", at most " + Integer.highestOneBit(Integer.MAX_VALUE / SLOT_SIZE) + " slots fit in a buffer");
+        }
+        buffer = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        mask = capacity - 1;
+    }
+
+    @Override
+    public StoredForecast get(String city, LocalDateTime date) {
+        int now = nowSeconds();
+        lock.readLock().lock();
+        try {
+            // looked up under the lock, as ids of released cities are reused by writers
+            int cityId = cities.find(city);
+            if (cityId < 0) {
+                return null;
+            }
+            long key = buildKey(cityId, epochHour(date));
+            int slot = find(key, now);
+            if (slot < 0) {
+                return null;
+            }
+            int offset = slot * SLOT_SIZE;
+            int unitId = buffer.getInt(offset + UNIT_OFFSET);
+            WeatherObject weatherObject = new WeatherObject(
+                city,
+                buffer.getFloat(offset + TEMPERATURE_OFFSET),
+                unitId < 0 ? null : units.name(unitId),
+                date.withMinute(buffer.getInt(offset + MINUTE_OFFSET)).withSecond(0).withNano(0)
+            );
+            int expiresAt = buffer.getInt(offset + EXPIRES_OFFSET);
+            return new StoredForecast(weatherObject, expiresAt == NO_EXPIRY ? -1 : expiresAt - (long) now);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StoredForecast> getAll(List<ForecastRequest> requests) {
+        List<StoredForecast> result = new ArrayList<>(requests.size());
+        for (ForecastRequest request : requests) {
+            result.add(get(request.getCity(), request.getDt()));
+        }
+        return result;
+    }
+
+    @Override
+    public void save(WeatherObject weatherObject, int ttlSeconds) {
+        int unitId = weatherObject.getUnit() == null ? -1 : units.intern(weatherObject.getUnit());
+        int now = nowSeconds();
+        int expiresAt = ttlSeconds > 0 ? (int) Math.min((long) now + ttlSeconds, NO_EXPIRY - 1) : NO_EXPIRY;
+
+        lock.writeLock().lock();
+        try {
+            int cityId = cities.intern(weatherObject.getCity());
+            long key = buildKey(cityId, epochHour(weatherObject.getDate()));
+            int offset = slotForWrite(key, now) * SLOT_SIZE;
+            boolean used = buffer.getInt(offset + EXPIRES_OFFSET) != UNUSED;
+            long previousKey = buffer.getLong(offset + KEY_OFFSET);
+            if (!used || previousKey != key) {
+                retainCity(cityId);
+                if (used) {
+                    releaseCity((int) (previousKey >>> 32));
+                }
+            }
+            buffer.putLong(offset + KEY_OFFSET, key);
+            buffer.putFloat(offset + TEMPERATURE_OFFSET, weatherObject.getTemperature());
+            buffer.putInt(offset + EXPIRES_OFFSET, expiresAt);
+            buffer.putInt(offset + UNIT_OFFSET, unitId);
+            buffer.putInt(offset + MINUTE_OFFSET, weatherObject.getDate().getMinute());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(List<WeatherObject> weatherObjects, int[] ttlSeconds) {
+        for (int i = 0; i < weatherObjects.size(); i++) {
+            save(weatherObjects.get(i), ttlSeconds[i]);
+        }
+    }
+
+    @Override
+    public WeatherObject getCurrent(String city) {
+        return current.get(city);
+    }
+
+    @Override
+    public void saveCurrent(String city, WeatherObject weatherObject, int ttlSeconds) {
+        current.put(city, weatherObject, ttlSeconds);
+    }
+
+    private void retainCity(int cityId) {
+        if (cityId >= citySlots.length) {
+            citySlots = Arrays.copyOf(citySlots, Math.max(citySlots.length * 2, cityId + 1));
+        }
+        citySlots[cityId]++;
+    }
+
+    private void releaseCity(int cityId) {
+        if (--citySlots[cityId] == 0) {
+            cities.release(cityId);
+        }
+    }
+
+    private int find(long key, int now) {
+        int slot = home(key);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int offset = slot * SLOT_SIZE;
+            int expiresAt = buffer.getInt(offset + EXPIRES_OFFSET);
+            if (expiresAt == UNUSED) {
+                return -1;
+            }
+            if (buffer.getLong(offset + KEY_OFFSET) == key) {
+                return expiresAt > now ? slot : -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotForWrite(long key, int now) {
+        int slot = home(key);
+        int free = -1;
+        int victim = slot;
+        int victimExpiresAt = Integer.MAX_VALUE;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int offset = slot * SLOT_SIZE;
+            int expiresAt = buffer.getInt(offset + EXPIRES_OFFSET);
+            if (expiresAt == UNUSED) {
+                return free >= 0 ? free : slot;
+            }
+            if (buffer.getLong(offset + KEY_OFFSET) == key) {
+                return slot;
+            }
+            if (expiresAt <= now && free < 0) {
+                free = slot;
+            }
+            if (expiresAt < victimExpiresAt) {
+                victim = slot;
+                victimExpiresAt = expiresAt;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return free >= 0 ? free : victim;
+    }
+
+    private int home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long buildKey(int cityId, int epochHour) {
+        return ((long) cityId << 32) | (epochHour & 0xFFFFFFFFL);
+    }
+
+    private static int epochHour(LocalDateTime date) {
+        return (int) (date.toEpochSecond(ZoneOffset.UTC) / 3600);
+    }
+
+    /**
+     * Seconds since the store was created, from a monotonic clock, so expiry fits an int for decades of uptime.
+     */
+    private int nowSeconds() {
+        return (int) ((System.nanoTime() - startNanos) / 1_000_000_000L);
+    }
+}
@@ -0,0 +1,168 @@
+package ru.pobopo.weather.store;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+import ru.pobopo.weather.cache.ForecastKeys;
+import ru.pobopo.weather.cache.RedisAccess;
+import ru.pobopo.weather.cache.RedisForecastLayout;
+import ru.pobopo.weather.cache.RedisRead;
+import ru.pobopo.weather.cache.WeatherObjectCodec;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.WeatherObject;
+
+@Slf4j
+public class RedisForecastStore implements ForecastStore {
+    private final RedisAccess redisAccess;
+    private final RedisForecastLayout layout;
+    private final WeatherObjectCodec codec;
+
+    public RedisForecastStore(RedisAccess redisAccess, RedisForecastLayout layout, WeatherObjectCodec codec) {
+        this.redisAccess = redisAccess;
+        this.layout = layout;
+        this.codec = codec;
+    }
+
+    @Override
+    public StoredForecast get(String city, LocalDateTime date) {
+        if (log.isDebugEnabled()) {
+            log.debug("Trying to get forecast from redis by key {}", ForecastKeys.hourKey(city, date));
+        }
+        RedisRead read = redisAccess.pipelined(pipeline -> layout.read(pipeline, city, date));
+        return toStoredForecast(read, city);
+    }
+
+    @Override
+    public List<StoredForecast> getAll(List<ForecastRequest> requests) {
+        List<RedisRead> reads = redisAccess.pipelined(pipeline -> {
+            List<RedisRead> queued = new ArrayList<>(requests.size());
+            for (ForecastRequest request : requests) {
+                queued.add(layout.read(pipeline, request.getCity(), request.getDt()));
+            }
+            return queued;
+        });
+        List<StoredForecast> result = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            result.add(toStoredForecast(reads.get(i), requests.get(i).getCity()));
+        }
+        return result;
+    }
+
+    /**
+     * Reads whole days with the layout and picks the requested hours, one round trip for the range.
+     */
+    @Override
+    public List<StoredForecast> getRange(String city, LocalDateTime from, LocalDateTime to) {
+        LocalDate firstDay = from.toLocalDate();
+        List<RedisRead> reads = redisAccess.pipelined(pipeline -> {
+            List<RedisRead> queued = new ArrayList<>();
+            for (LocalDate day = firstDay; day.atStartOfDay().isBefore(to); day = day.plusDays(1)) {
+                queued.addAll(layout.readDay(pipeline, city, day));
+            }
+            return queued;
+        });
+        List<StoredForecast> result = new ArrayList<>();
+        for (LocalDateTime hour = from; hour.isBefore(to); hour = hour.plusHours(1)) {
+            int index = (int) firstDay.atStartOfDay().until(hour, ChronoUnit.HOURS);
+            result.add(toStoredForecast(reads.get(index), city));
+        }
+        return result;
+    }
+
+    @Override
+    public void save(WeatherObject weatherObject, int ttlSeconds) {
+        byte[] value = codec.encode(weatherObject, weatherObject.getCity());
+        write(pipeline -> Collections.singletonList(
+            layout.write(pipeline, weatherObject.getCity(), weatherObject.getDate(), value, ttlSeconds)
+        ));
+    }
+
+    @Override
+    public void saveAll(List<WeatherObject> weatherObjects, int[] ttlSeconds) {
+        List<byte[]> values = new ArrayList<>(weatherObjects.size());
+        for (WeatherObject weatherObject : weatherObjects) {
+            values.add(codec.encode(weatherObject, weatherObject.getCity()));
+        }
+        write(pipeline -> {
+            List<Response<?>> replies = new ArrayList<>(weatherObjects.size());
+            for (int i = 0; i < weatherObjects.size(); i++) {
+                WeatherObject weatherObject = weatherObjects.get(i);
+                replies.add(layout.write(
+                    pipeline, weatherObject.getCity(), weatherObject.getDate(), values.get(i), ttlSeconds[i]
+                ));
+            }
+            return replies;
+        });
+    }
+
+    @Override
+    public WeatherObject getCurrent(String city) {
+        byte[] key = SafeEncoder.encode(ForecastKeys.currentKey(city));
+        return codec.decode(redisAccess.execute(jedis -> jedis.get(key)), city);
+    }
+
+    @Override
+    public void saveCurrent(String city, WeatherObject weatherObject, int ttlSeconds) {
+        byte[] key = SafeEncoder.encode(ForecastKeys.currentKey(city));
+        byte[] value = codec.encode(weatherObject, city);
+        redisAccess.execute(jedis -> jedis.setex(key, ttlSeconds, value));
+    }
+
+    public RedisAccess getRedisAccess() {
+        return redisAccess;
+    }
+
+    @Override
+    public void close() {
+        redisAccess.close();
+    }
+
+    private StoredForecast toStoredForecast(RedisRead read, String city) {
+        WeatherObject weatherObject = codec.decode(read.value(), city);
+        if (weatherObject == null) {
+            return null;
+        }
+        Long ttl = read.ttl();
+        if (read.legacy()) {
+            migrate(weatherObject, read.value(), ttl);
+        }
+        return new StoredForecast(weatherObject, ttl == null ? -1 : ttl);
+    }
+
+    /**
+     * Copies a value found in the previous redis layout into the current one, keeping its remaining ttl.
+     */
+    private void migrate(WeatherObject weatherObject, byte[] value, Long ttl) {
+        if (weatherObject.getDate() == null || ttl == null || ttl <= 0) {
+            return;
+        }
+        write(pipeline -> Collections.singletonList(
+            layout.write(pipeline, weatherObject.getCity(), weatherObject.getDate(), value, ttl.intValue())
+        ));
+    }
+
+    /**
+     * Runs pipelined layout writes and checks their replies. If the layout can recover from a failed reply,
+     * the writes are queued once more.
+     */
+    private void write(Function<Pipeline, List<Response<?>>> writes) {
+        List<Response<?>> replies = redisAccess.pipelined(writes);
+        try {
+            replies.forEach(Response::get);
+        } catch (JedisDataException e) {
+            if (!redisAccess.execute(jedis -> layout.recover(jedis, e))) {
+                throw e;
+            }
+            redisAccess.pipelined(writes).forEach(Response::get);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.pobopo.weather.store;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.pobopo.weather.model.WeatherObject;
+
+@Data
+@AllArgsConstructor
+public class StoredForecast {
+    private WeatherObject forecast;
+    /**
+     * Remaining time to live in seconds, negative if the entry has no expiry.
+     */
+    private long ttlSeconds;
+}
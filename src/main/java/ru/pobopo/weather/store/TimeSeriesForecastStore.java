@@ -0,0 +1,287 @@
+package ru.pobopo.weather.store;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.util.LogSampler;
+
+/**
+ * In-memory store of hourly temperatures packed into primitive arrays.
+ * <p>
+ * Every city gets a dense int id and a ring of {@code windowHours} slots indexed by epoch hour modulo the
+ * window. A slot holds the temperature (NaN when missing), the epoch hour it belongs to, its expiry in
+ * seconds since the store was created and the unit id. Finding an hour is a single array access per field,
+ * a range is read under one lock. Dates are stored with hour precision.
+ * <p>
+ * At most {@code maxCities} series are kept. A new city evicts one not used recently, picked by a clock
+ * sweep: every access marks its series, and the hand spares marked series once while clearing the mark.
+ * Up to {@value #MAX_UNITS} distinct units are stored, hours in any other unit are not.
+ */
+@Slf4j
+public class TimeSeriesForecastStore implements ForecastStore {
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int MAX_UNITS = Byte.MAX_VALUE - 1;
+    private static final int NO_EXPIRY = Integer.MAX_VALUE;
+
+    private final int windowHours;
+    private final int maxCities;
+    private final NameInterner cities = new NameInterner();
+    private final NameInterner units = new NameInterner();
+    private final CurrentConditions current = new CurrentConditions();
+    private final LogSampler unitWarnings = new LogSampler();
+    private final long startNanos = System.nanoTime();
+    private volatile Series[] series = new Series[64];
+    private int seriesCount;
+    private int clockHand;
+
+    public TimeSeriesForecastStore(int windowHours, int maxCities) {
+        if (windowHours <= 0 || maxCities <= 0) {
+            throw new IllegalArgumentException("Time series window and city limit must be positive");
+        }
+        this.windowHours = windowHours;
+        this.maxCities = maxCities;
+    }
+
+    @Override
+    public StoredForecast get(String city, LocalDateTime date) {
+        Series citySeries = seriesOf(city);
+        if (citySeries == null) {
+            return null;
+        }
+        int hour = epochHour(date);
+        int now = nowSeconds();
+        citySeries.referenced = true;
+        synchronized (citySeries) {
+            return read(citySeries, hour, date, now);
+        }
+    }
+
+    @Override
+    public List<StoredForecast> getAll(List<ForecastRequest> requests) {
+        List<StoredForecast> result = new ArrayList<>(requests.size());
+        for (ForecastRequest request : requests) {
+            result.add(get(request.getCity(), request.getDt()));
+        }
+        return result;
+    }
+
+    /**
+     * Reads the hours of the range with one series lookup and one lock.
+     */
+    @Override
+    public List<StoredForecast> getRange(String city, LocalDateTime from, LocalDateTime to) {
+        List<StoredForecast> result = new ArrayList<>();
+        Series citySeries = seriesOf(city);
+        int firstHour = epochHour(from);
+        int now = nowSeconds();
+        if (citySeries == null) {
+            for (LocalDateTime hour = from; hour.isBefore(to); hour = hour.plusHours(1)) {
+                result.add(null);
+            }
+            return result;
+        }
+        citySeries.referenced = true;
+        synchronized (citySeries) {
+            int i = 0;
+            for (LocalDateTime hour = from; hour.isBefore(to); hour = hour.plusHours(1), i++) {
+                result.add(i < windowHours ? read(citySeries, firstHour + i, hour, now) : null);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void save(WeatherObject weatherObject, int ttlSeconds) {
+        byte unitId = unitId(weatherObject.getUnit());
+        if (unitId < 0) {
+            long suppressed = unitWarnings.sample();
+            if (suppressed >= 0) {
+                log.warn("Not storing forecast of {} in unit {}, {} distinct units are stored already, "
+                    + "{} similar suppressed", weatherObject.getCity(), weatherObject.getUnit(), MAX_UNITS, suppressed);
+            }
+            return;
+        }
+        int now = nowSeconds();
+        Series citySeries = seriesForWrite(weatherObject.getCity());
+        int hour = epochHour(weatherObject.getDate());
+        int slot = slot(hour);
+        int expiresAt = ttlSeconds > 0 ? (int) Math.min((long) now + ttlSeconds, NO_EXPIRY - 1) : NO_EXPIRY;
+        citySeries.referenced = true;
+        synchronized (citySeries) {
+            citySeries.temperatures[slot] = weatherObject.getTemperature();
+            citySeries.hours[slot] = hour;
+            citySeries.expiresAt[slot] = expiresAt;
+            citySeries.units[slot] = unitId;
+        }
+    }
+
+    @Override
+    public void saveAll(List<WeatherObject> weatherObjects, int[] ttlSeconds) {
+        for (int i = 0; i < weatherObjects.size(); i++) {
+            save(weatherObjects.get(i), ttlSeconds[i]);
+        }
+    }
+
+    @Override
+    public WeatherObject getCurrent(String city) {
+        return current.get(city);
+    }
+
+    @Override
+    public void saveCurrent(String city, WeatherObject weatherObject, int ttlSeconds) {
+        current.put(city, weatherObject, ttlSeconds);
+    }
+
+    /**
+     * Approximate heap bytes used by all series.
+     */
+    public synchronized long footprint() {
+        return seriesCount * seriesBytes();
+    }
+
+    public synchronized int cityCount() {
+        return seriesCount;
+    }
+
+    private StoredForecast read(Series citySeries, int hour, LocalDateTime date, int now) {
+        int slot = slot(hour);
+        if (!citySeries.isPresent(slot, hour, now)) {
+            return null;
+        }
+        byte unitId = citySeries.units[slot];
+        WeatherObject weatherObject = new WeatherObject(
+            citySeries.city,
+            citySeries.temperatures[slot],
+            unitId == 0 ? null : units.name(unitId - 1),
+            date.withMinute(0).withSecond(0).withNano(0)
+        );
+        int expiresAt = citySeries.expiresAt[slot];
+        return new StoredForecast(weatherObject, expiresAt == NO_EXPIRY ? -1 : expiresAt - (long) now);
+    }
+
+    private long seriesBytes() {
+        return 4L * ARRAY_HEADER_BYTES + (long) windowHours * (Float.BYTES + Integer.BYTES + Integer.BYTES + 1);
+    }
+
+    /**
+     * Ids of evicted cities are reused, so a series found by id is only returned if it belongs to the city.
+     */
+    private Series seriesOf(String city) {
+        int id = cities.find(city);
+        Series[] current = series;
+        if (id < 0 || id >= current.length) {
+            return null;
+        }
+        Series citySeries = current[id];
+        return citySeries != null && citySeries.city.equals(city) ? citySeries : null;
+    }
+
+    private Series seriesForWrite(String city) {
+        Series citySeries = seriesOf(city);
+        if (citySeries != null) {
+            return citySeries;
+        }
+        synchronized (this) {
+            citySeries = seriesOf(city);
+            if (citySeries != null) {
+                return citySeries;
+            }
+            if (seriesCount >= maxCities) {
+                evictNotRecentlyUsed();
+            }
+            int id = cities.intern(city);
+            if (id >= series.length) {
+                series = Arrays.copyOf(series, Math.max(series.length * 2, id + 1));
+            }
+            citySeries = new Series(city, windowHours);
+            series[id] = citySeries;
+            seriesCount++;
+            return citySeries;
+        }
+    }
+
+    /**
+     * Advances the clock hand to the first unmarked series and evicts it. Every series passed is unmarked, so
+     * this ends within two turns of the hand and takes constant time amortized over insertions.
+     */
+    private void evictNotRecentlyUsed() {
+        while (true) {
+            int id = clockHand;
+            clockHand = (clockHand + 1) % series.length;
+            Series candidate = series[id];
+            if (candidate == null) {
+                continue;
+            }
+            if (candidate.referenced) {
+                candidate.referenced = false;
+                continue;
+            }
+            series[id] = null;
+            cities.release(id);
+            seriesCount--;
+            return;
+        }
+    }
+
+    /**
+     * Returns the stored unit id, 0 for no unit, or -1 if the unit table is full.
+     */
+    private byte unitId(String unit) {
+        if (unit == null) {
+            return 0;
+        }
+        int id = units.find(unit);
+        if (id < 0) {
+            if (units.size() >= MAX_UNITS) {
+                return -1;
+            }
+            id = units.intern(unit);
+            if (id >= MAX_UNITS) {
+                return -1;
+            }
+        }
+        return (byte) (id + 1);
+    }
+
+    private int slot(int epochHour) {
+        return Math.floorMod(epochHour, windowHours);
+    }
+
+    private static int epochHour(LocalDateTime date) {
+        return (int) (date.toEpochSecond(ZoneOffset.UTC) / 3600);
+    }
+
+    /**
+     * Seconds since the store was created, from a monotonic clock, so expiry fits an int for decades of uptime.
+     */
+    private int nowSeconds() {
+        return (int) ((System.nanoTime() - startNanos) / 1_000_000_000L);
+    }
+
+    private static class Series {
+        private final String city;
+        private final float[] temperatures;
+        private final int[] hours;
+        private final int[] expiresAt;
+        private final byte[] units;
+        private volatile boolean referenced = true;
+
+        private Series(String city, int windowHours) {
+            this.city = city;
+            temperatures = new float[windowHours];
+            Arrays.fill(temperatures, Float.NaN);
+            hours = new int[windowHours];
+            expiresAt = new int[windowHours];
+            units = new byte[windowHours];
+        }
+
+        private boolean isPresent(int slot, int hour, int now) {
+            return hours[slot] == hour && expiresAt[slot] > now && !Float.isNaN(temperatures[slot]);
+        }
+    }
+}
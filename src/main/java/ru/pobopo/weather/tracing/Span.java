@@ -0,0 +1,54 @@
+package ru.pobopo.weather.tracing;
+
+/**
+ * Timed stage of a request. Ending is idempotent and may happen on any thread.
+ */
+public class Span implements AutoCloseable {
+    static final Span NOOP = new Span(null, null, null, 0);
+
+    private final Trace trace;
+    private final String name;
+    private final String spanId;
+    private final long startNanos;
+    private volatile long endNanos;
+
+    Span(Trace trace, String name, String spanId, long startNanos) {
+        this.trace = trace;
+        this.name = name;
+        this.spanId = spanId;
+        this.startNanos = startNanos;
+    }
+
+    public void end() {
+        if (trace == null || endNanos != 0) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        trace.onEnd(this);
+    }
+
+    @Override
+    public void close() {
+        end();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getDurationNanos() {
+        return endNanos - startNanos;
+    }
+}
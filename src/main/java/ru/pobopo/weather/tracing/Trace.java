@@ -0,0 +1,87 @@
+package ru.pobopo.weather.tracing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spans of one request. Ids follow the W3C/OpenTelemetry format: 16 byte trace id, 8 byte span ids,
+ * stage spans are children of the root span.
+ */
+public class Trace {
+    private final String traceId;
+    private final Span root;
+    private final long startEpochNanos;
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+
+    Trace(String name) {
+        traceId = randomHex(16);
+        startEpochNanos = System.currentTimeMillis() * 1_000_000;
+        root = new Span(this, name, randomHex(8), System.nanoTime());
+    }
+
+    public Span span(String name) {
+        return new Span(this, name, randomHex(8), System.nanoTime());
+    }
+
+    void onEnd(Span span) {
+        if (span != root) {
+            spans.add(span);
+        }
+    }
+
+    public void finish() {
+        root.end();
+    }
+
+    /**
+     * Durations summed by stage name in the {@code Server-Timing} header format.
+     */
+    public String serverTiming() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (Span span : spans) {
+            durations.merge(span.getName(), span.getDurationNanos(), Long::sum);
+        }
+        StringBuilder header = new StringBuilder();
+        durations.forEach((name, nanos) -> {
+            if (header.length() > 0) {
+                header.append(", ");
+            }
+            header.append(name).append(";dur=").append(String.format("%.3f", nanos / 1_000_000.0));
+        });
+        return header.toString();
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    public List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * Converts a {@link System#nanoTime()} reading of this trace to unix epoch nanos.
+     */
+    public long toEpochNanos(long nanos) {
+        return startEpochNanos + (nanos - root.getStartNanos());
+    }
+
+    private static String randomHex(int bytes) {
+        StringBuilder result = new StringBuilder(bytes * 2);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < bytes; i++) {
+            int value = random.nextInt(256);
+            result.append(Character.forDigit(value >> 4, 16)).append(Character.forDigit(value & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package ru.pobopo.weather.tracing;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.pobopo.weather.util.EnvUtils;
+
+/**
+ * Keeps the last finished traces in memory and, with TRACING_FILE set, appends them to the file as
+ * OTLP json lines (one ExportTraceServiceRequest per trace) on a background thread.
+ */
+@Slf4j
+@Component
+public class TraceCollector {
+    private final int memorySize;
+    private final Deque<String> recent = new ConcurrentLinkedDeque<>();
+    private final Writer fileWriter;
+    private final ThreadPoolExecutor fileExecutor;
+
+    public TraceCollector() throws IOException {
+        memorySize = EnvUtils.getInt("TRACING_MEMORY_SIZE", 100);
+        String file = EnvUtils.getString("TRACING_FILE", null);
+        if (file == null) {
+            fileWriter = null;
+            fileExecutor = null;
+            return;
+        }
+        log.info("Writing traces to {}", file);
+        fileWriter = Files.newBufferedWriter(
+            Paths.get(file), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND
+        );
+        fileExecutor = new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(1000),
+            runnable -> {
+                Thread thread = new Thread(runnable, "trace-writer");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy()
+        );
+    }
+
+    public void collect(Trace trace) {
+        String json = toOtlpJson(trace);
+        recent.addFirst(json);
+        while (recent.size() > memorySize) {
+            recent.pollLast();
+        }
+        if (fileExecutor != null) {
+            fileExecutor.execute(() -> write(json));
+        }
+    }
+
+    /**
+     * Last collected traces, newest first.
+     */
+    public List<String> getRecent() {
+        return new ArrayList<>(recent);
+    }
+
+    private void write(String json) {
+        try {
+            fileWriter.write(json);
+            fileWriter.write('\n');
+            fileWriter.flush();
+        } catch (IOException e) {
+            log.warn("Failed to write trace: {}", e.getMessage());
+        }
+    }
+
+    private static String toOtlpJson(Trace trace) {
+        StringWriter result = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(result)) {
+            writer.beginObject().name("resourceSpans").beginArray().beginObject();
+            writer.name("resource").beginObject().name("attributes").beginArray()
+                .beginObject().name("key").value("service.name")
+                .name("value").beginObject().name("stringValue").value("weather").endObject()
+                .endObject()
+                .endArray().endObject();
+            writer.name("scopeSpans").beginArray().beginObject();
+            writer.name("scope").beginObject().name("name").value("ru.pobopo.weather").endObject();
+            writer.name("spans").beginArray();
+            writeSpan(writer, trace, trace.getRoot(), null, 2);
+            for (Span span : trace.getSpans()) {
+                writeSpan(writer, trace, span, trace.getRoot().getSpanId(), 1);
+            }
+            writer.endArray();
+            writer.endObject().endArray();
+            writer.endObject().endArray().endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return result.toString();
+    }
+
+    private static void writeSpan(JsonWriter writer, Trace trace, Span span, String parentId, int kind)
+        throws IOException {
+        writer.beginObject();
+        writer.name("traceId").value(trace.getTraceId());
+        writer.name("spanId").value(span.getSpanId());
+        if (parentId != null) {
+            writer.name("parentSpanId").value(parentId);
+        }
+        writer.name("name").value(span.getName());
+        writer.name("kind").value(kind);
+        writer.name("startTimeUnixNano").value(String.valueOf(trace.toEpochNanos(span.getStartNanos())));
+        writer.name("endTimeUnixNano").value(String.valueOf(trace.toEpochNanos(span.getEndNanos())));
+        writer.endObject();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (fileExecutor != null) {
+            fileExecutor.shutdown();
+            fileWriter.close();
+        }
+    }
+}
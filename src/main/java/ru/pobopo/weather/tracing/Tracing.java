@@ -0,0 +1,51 @@
+package ru.pobopo.weather.tracing;
+
+import ru.pobopo.weather.util.EnvUtils;
+
+/**
+ * Entry point of in-process request tracing. The current trace is bound to the request thread;
+ * code continuing on other threads takes the trace with {@link #current()} and passes it on.
+ * <p>
+ * Switched with TRACING_ENABLED or at runtime through the tracing actuator endpoint. When off,
+ * spans are a shared no-op instance, so instrumented code costs one volatile read.
+ */
+public class Tracing {
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    private static volatile boolean enabled = EnvUtils.getBoolean("TRACING_ENABLED", false);
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Starts a trace bound to the current thread, null when tracing is off.
+     */
+    public static Trace start(String name) {
+        if (!enabled) {
+            return null;
+        }
+        Trace trace = new Trace(name);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public static Trace current() {
+        return enabled ? CURRENT.get() : null;
+    }
+
+    public static Span span(String name) {
+        return span(current(), name);
+    }
+
+    public static Span span(Trace trace, String name) {
+        return trace == null ? Span.NOOP : trace.span(name);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.pobopo.weather.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shows recent traces and switches tracing on or off: POST {"enabled": true} to /actuator/tracing.
+ */
+@Component
+@Endpoint(id = "tracing")
+public class TracingEndpoint {
+    private final TraceCollector traceCollector;
+    private final ObjectMapper objectMapper;
+
+    public TracingEndpoint(TraceCollector traceCollector, ObjectMapper objectMapper) {
+        this.traceCollector = traceCollector;
+        this.objectMapper = objectMapper;
+    }
+
+    @ReadOperation
+    public Map<String, Object> traces() throws JsonProcessingException {
+        List<JsonNode> traces = new ArrayList<>();
+        for (String trace : traceCollector.getRecent()) {
+            traces.add(objectMapper.readTree(trace));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", Tracing.isEnabled());
+        result.put("traces", traces);
+        return result;
+    }
+
+    @WriteOperation
+    public void setEnabled(boolean enabled) {
+        Tracing.setEnabled(enabled);
+    }
+}
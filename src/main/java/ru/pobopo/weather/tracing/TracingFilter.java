@@ -0,0 +1,43 @@
+package ru.pobopo.weather.tracing;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Opens a trace around the whole request, ahead of the security filters so auth is part of it.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TracingFilter extends OncePerRequestFilter {
+    private final TraceCollector traceCollector;
+
+    public TracingFilter(TraceCollector traceCollector) {
+        this.traceCollector = traceCollector;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        Trace trace = Tracing.start(request.getMethod() + " " + request.getRequestURI());
+        if (trace == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Tracing.unbind();
+            trace.finish();
+            traceCollector.collect(trace);
+        }
+    }
+}
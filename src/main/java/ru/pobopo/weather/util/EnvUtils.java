@@ -0,0 +1,34 @@
+package ru.pobopo.weather.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Reads settings from environment variables. A system property with the same name takes precedence,
+ * so benchmarks can configure an in-process instance.
+ */
+public class EnvUtils {
+    public static String getString(String name, String defaultValue) {
+        String value = get(name);
+        return StringUtils.isBlank(value) ? defaultValue : value;
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        String value = get(name);
+        return StringUtils.isBlank(value) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public static long getLong(String name, long defaultValue) {
+        String value = get(name);
+        return StringUtils.isBlank(value) ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = get(name);
+        return StringUtils.isBlank(value) ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private static String get(String name) {
+        String value = System.getProperty(name);
+        return value != null ? value : System.getenv(name);
+    }
+}
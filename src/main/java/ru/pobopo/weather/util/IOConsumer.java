@@ -0,0 +1,11 @@
+package ru.pobopo.weather.util;
+
+import java.io.IOException;
+
+/**
+ * Consumer that writes to a stream, used to hand results to a response as soon as they are resolved.
+ */
+@FunctionalInterface
+public interface IOConsumer<T> {
+    void accept(T value) throws IOException;
+}
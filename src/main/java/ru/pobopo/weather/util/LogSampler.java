@@ -0,0 +1,43 @@
+package ru.pobopo.weather.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets a repetitive message through at most once per interval and counts the dropped ones.
+ * <pre>
+ * long suppressed = sampler.sample();
+ * if (suppressed >= 0) {
+ *     log.warn("Something happened, {} similar suppressed", suppressed);
+ * }
+ * </pre>
+ */
+public class LogSampler {
+    private final long intervalNanos;
+    private final AtomicLong nextAllowed = new AtomicLong(System.nanoTime());
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LogSampler(long intervalMs) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    }
+
+    /**
+     * Interval from LOG_SAMPLE_INTERVAL_MS, 10 seconds by default.
+     */
+    public LogSampler() {
+        this(EnvUtils.getLong("LOG_SAMPLE_INTERVAL_MS", 10_000));
+    }
+
+    /**
+     * Returns the number of messages suppressed since the last logged one, or -1 if this one should be dropped.
+     */
+    public long sample() {
+        long now = System.nanoTime();
+        long allowed = nextAllowed.get();
+        if (now - allowed >= 0 && nextAllowed.compareAndSet(allowed, now + intervalNanos)) {
+            return suppressed.getAndSet(0);
+        }
+        suppressed.incrementAndGet();
+        return -1;
+    }
+}
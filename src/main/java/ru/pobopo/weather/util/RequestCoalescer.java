@@ -0,0 +1,56 @@
+package ru.pobopo.weather.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Registry of in-flight calls. Concurrent callers with the same key share the result of the first call
+ * instead of starting their own. A call that doesn't complete within the timeout fails every waiter and
+ * is dropped from the registry, so later callers start a fresh one.
+ */
+public class RequestCoalescer<T> {
+    private final ConcurrentMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+    private final Counter started;
+    private final Counter coalesced;
+    private final long timeoutMs;
+
+    public RequestCoalescer(MeterRegistry meterRegistry, String name, Duration timeout) {
+        this.timeoutMs = timeout.toMillis();
+        started = meterRegistry.counter("weather.coalescer.calls", "name", name);
+        coalesced = meterRegistry.counter("weather.coalescer.coalesced", "name", name);
+        meterRegistry.gauge("weather.coalescer.in_flight", Tags.of("name", name),
+            inFlight, ConcurrentMap::size);
+    }
+
+    public CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        started.increment();
+        created.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((result, error) -> inFlight.remove(key, created));
+        try {
+            call.get().whenComplete((result, error) -> {
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(result);
+                }
+            });
+        } catch (Throwable e) {
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+}
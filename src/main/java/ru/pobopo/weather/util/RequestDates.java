@@ -0,0 +1,15 @@
+package ru.pobopo.weather.util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Dates of request parameters ("yyyy-MM-dd'T'HH:mm"), shared by the servlet and reactive controllers.
+ */
+public class RequestDates {
+    public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    public static LocalDateTime parse(String value) {
+        return LocalDateTime.parse(value, FORMATTER);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.pobopo.weather.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Virtual thread executors, enabled with VIRTUAL_THREADS=true on a java 21 runtime.
+ * Looked up reflectively, so the code still builds and runs on java 11 where the mode is just off.
+ */
+@Slf4j
+public class VirtualThreads {
+    private static final boolean ENABLED = resolveEnabled();
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Executor starting a new virtual thread per task, threads are named with the prefix and a counter.
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+
+    private static boolean resolveEnabled() {
+        if (!EnvUtils.getBoolean("VIRTUAL_THREADS", false)) {
+            return false;
+        }
+        try {
+            Thread.class.getMethod("ofVirtual");
+            log.info("Virtual threads enabled");
+            return true;
+        } catch (NoSuchMethodException e) {
+            log.warn("VIRTUAL_THREADS is set, but the runtime has no virtual threads, using platform threads");
+            return false;
+        }
+    }
+}
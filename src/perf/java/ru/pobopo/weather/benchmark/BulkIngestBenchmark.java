@@ -0,0 +1,104 @@
+package ru.pobopo.weather.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.pobopo.weather.cache.FreshnessPolicy;
+import ru.pobopo.weather.cache.LocalWeatherCache;
+import ru.pobopo.weather.cache.WeatherObjectCodec;
+import ru.pobopo.weather.client.WeatherApiClient;
+import ru.pobopo.weather.config.ForecastStoreConfig;
+import ru.pobopo.weather.config.GsonConfig;
+import ru.pobopo.weather.model.BulkIngestResult;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.service.BulkIngestService;
+import ru.pobopo.weather.service.WeatherService;
+import ru.pobopo.weather.store.ForecastStore;
+
+/**
+ * Bulk ingest of pushed forecasts into an in-process store, reported per item.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(BulkIngestBenchmark.ITEMS)
+public class BulkIngestBenchmark {
+    static final int ITEMS = 10_000;
+
+    @Param({"array", "ndjson"})
+    public String format;
+
+    @Param({"memory", "timeseries"})
+    public String store;
+
+    private WeatherApiClient weatherApiClient;
+    private ForecastStore forecastStore;
+    private WeatherService weatherService;
+    private BulkIngestService bulkIngestService;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("FORECAST_STORE", store);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Gson gson = new GsonConfig().gson();
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        weatherApiClient = new WeatherApiClient(gson, meterRegistry);
+        forecastStore = new ForecastStoreConfig().forecastStore(new WeatherObjectCodec(gson), meterRegistry);
+        weatherService = new WeatherService(
+            weatherApiClient, new LocalWeatherCache(meterRegistry), new FreshnessPolicy(), forecastStore, meterRegistry
+        );
+        bulkIngestService = new BulkIngestService(weatherService, objectMapper, meterRegistry);
+
+        LocalDateTime first = LocalDate.now().atStartOfDay();
+        boolean ndjson = "ndjson".equals(format);
+        StringBuilder content = new StringBuilder(ndjson ? "" : "[");
+        for (int i = 0; i < ITEMS; i++) {
+            WeatherObject weatherObject = new WeatherObject(
+                "city" + i % 100, i % 40 - 10f, "celsius", first.plusHours(i / 100)
+            );
+            if (i > 0) {
+                content.append(ndjson ? "\n" : ",");
+            }
+            content.append(objectMapper.writeValueAsString(weatherObject));
+        }
+        content.append(ndjson ? "\n" : "]");
+        body = content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public BulkIngestResult ingest() throws IOException {
+        return bulkIngestService.ingest(new ByteArrayInputStream(body));
+    }
+
+    @TearDown
+    public void tearDown() {
+        weatherService.shutdown();
+        weatherApiClient.shutdown();
+        forecastStore.close();
+    }
+}
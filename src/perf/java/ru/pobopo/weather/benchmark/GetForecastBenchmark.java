@@ -0,0 +1,115 @@
+package ru.pobopo.weather.benchmark;
+
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.pobopo.weather.cache.ForecastKeys;
+import ru.pobopo.weather.cache.FreshnessPolicy;
+import ru.pobopo.weather.cache.LocalWeatherCache;
+import ru.pobopo.weather.cache.WeatherObjectCodec;
+import ru.pobopo.weather.client.WeatherApiClient;
+import ru.pobopo.weather.config.ForecastStoreConfig;
+import ru.pobopo.weather.config.GsonConfig;
+import ru.pobopo.weather.exception.ValidationException;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.service.WeatherService;
+import ru.pobopo.weather.store.ForecastStore;
+import ru.pobopo.weather.stub.EmbeddedRedis;
+import ru.pobopo.weather.stub.StubWeatherApi;
+
+/**
+ * {@link WeatherService#getForecast} wired like the application, with {@link EmbeddedRedis} standing in for redis
+ * and {@link StubWeatherApi} for the weather api. The path selects where the hour is found:
+ * <ul>
+ *     <li>local - the local cache</li>
+ *     <li>store - the forecast store, the local entry is dropped before each call</li>
+ *     <li>upstream - the weather api, every call asks for a new city</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetForecastBenchmark {
+    private static final String CITY = "Moscow";
+
+    @Param({"local", "store", "upstream"})
+    public String path;
+
+    @Param({"redis", "memory", "offheap", "timeseries"})
+    public String store;
+
+    private EmbeddedRedis redis;
+    private StubWeatherApi weatherApi;
+    private WeatherApiClient weatherApiClient;
+    private ForecastStore forecastStore;
+    private LocalWeatherCache localCache;
+    private WeatherService weatherService;
+    private LocalDateTime hour;
+    private String hourKey;
+    private long cities;
+
+    @Setup
+    public void setup() throws IOException, ValidationException {
+        redis = new EmbeddedRedis();
+        weatherApi = new StubWeatherApi(0);
+        System.setProperty("REDIS_HOST", redis.getHost());
+        System.setProperty("REDIS_PORT", String.valueOf(redis.getPort()));
+        System.setProperty("BASE_URL", weatherApi.getBaseUrl());
+        System.setProperty("API_KEY", "benchmark");
+        System.setProperty("FORECAST_STORE", store);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Gson gson = new GsonConfig().gson();
+        weatherApiClient = new WeatherApiClient(gson, meterRegistry);
+        forecastStore = new ForecastStoreConfig().forecastStore(new WeatherObjectCodec(gson), meterRegistry);
+        localCache = new LocalWeatherCache(meterRegistry);
+        weatherService = new WeatherService(
+            weatherApiClient, localCache, new FreshnessPolicy(), forecastStore, meterRegistry
+        );
+
+        hour = LocalDate.now().plusDays(1).atTime(12, 0);
+        hourKey = ForecastKeys.hourKey(CITY, hour);
+        weatherService.getForecast(CITY, hour);
+    }
+
+    @Benchmark
+    public WeatherObject getForecast() throws IOException, ValidationException {
+        switch (path) {
+            case "local":
+                return weatherService.getForecast(CITY, hour);
+            case "store":
+                localCache.invalidate(hourKey);
+                return weatherService.getForecast(CITY, hour);
+            default:
+                return weatherService.getForecast(CITY + cities++, hour);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        weatherService.shutdown();
+        weatherApiClient.shutdown();
+        forecastStore.close();
+        weatherApi.close();
+        redis.close();
+    }
+}
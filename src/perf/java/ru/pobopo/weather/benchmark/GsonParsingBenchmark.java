@@ -0,0 +1,60 @@
+package ru.pobopo.weather.benchmark;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.pobopo.weather.config.GsonConfig;
+import ru.pobopo.weather.model.weatherapi.WeatherApiResponse;
+import ru.pobopo.weather.stub.StubWeatherApi;
+
+/**
+ * Parsing of recorded weather api responses the way {@code WeatherApiClient} does it, from the body stream.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GsonParsingBenchmark {
+    private Gson gson;
+    private byte[] forecast;
+    private byte[] current;
+
+    @Setup
+    public void setup() {
+        gson = new GsonConfig().gson();
+        forecast = StubWeatherApi.payload("forecast.json").getBytes(StandardCharsets.UTF_8);
+        current = StubWeatherApi.payload("current.json").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public WeatherApiResponse forecast() throws IOException {
+        return parse(forecast);
+    }
+
+    @Benchmark
+    public WeatherApiResponse current() throws IOException {
+        return parse(current);
+    }
+
+    private WeatherApiResponse parse(byte[] body) throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, WeatherApiResponse.class);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.pobopo.weather.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.pobopo.weather.cache.ForecastKeys;
+import ru.pobopo.weather.filter.AuthHeader;
+import ru.pobopo.weather.util.ParameterStringBuilder;
+
+/**
+ * Small per-request string work: cache keys, the upstream query string and the auth header.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeysBenchmark {
+    private String city;
+    private LocalDateTime hour;
+    private LocalDate day;
+    private Map<String, String> params;
+    private String authHeader;
+    private String malformedAuthHeader;
+
+    @Setup
+    public void setup() {
+        city = "Saint Petersburg";
+        hour = LocalDateTime.of(2022, 11, 21, 14, 0);
+        day = hour.toLocalDate();
+        params = new HashMap<>();
+        params.put("q", city);
+        params.put("days", "3");
+        params.put("key", "0123456789abcdef0123456789abcdef");
+        params.put("aqi", "no");
+        authHeader = "user;secret";
+        malformedAuthHeader = "user;secret;extra";
+    }
+
+    @Benchmark
+    public String hourKey() {
+        return ForecastKeys.hourKey(city, hour);
+    }
+
+    @Benchmark
+    public String dayKey() {
+        return ForecastKeys.dayKey(city, day);
+    }
+
+    @Benchmark
+    public String paramsString() throws Exception {
+        return ParameterStringBuilder.getParamsString(params);
+    }
+
+    @Benchmark
+    public String[] authHeader() {
+        return AuthHeader.parse(authHeader);
+    }
+
+    @Benchmark
+    public String[] malformedAuthHeader() {
+        return AuthHeader.parse(malformedAuthHeader);
+    }
+}
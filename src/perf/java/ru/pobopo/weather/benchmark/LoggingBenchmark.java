@@ -0,0 +1,159 @@
+package ru.pobopo.weather.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import ru.pobopo.weather.cache.ForecastKeys;
+import ru.pobopo.weather.cache.FreshnessPolicy;
+import ru.pobopo.weather.cache.LocalWeatherCache;
+import ru.pobopo.weather.cache.WeatherObjectCodec;
+import ru.pobopo.weather.client.WeatherApiClient;
+import ru.pobopo.weather.config.ForecastStoreConfig;
+import ru.pobopo.weather.config.GsonConfig;
+import ru.pobopo.weather.exception.ValidationException;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.service.WeatherService;
+import ru.pobopo.weather.store.ForecastStore;
+import ru.pobopo.weather.stub.StubWeatherApi;
+
+/**
+ * Cache-hit throughput of {@link WeatherService#getForecast} under the logging setups of logback-spring.xml,
+ * with the console appender writing nowhere. The in-memory store keeps redis out of the measurement.
+ * <ul>
+ *     <li>mode - sync, async (LOG_MODE=async with the default blocking queue) or async-never-block
+ *     (LOG_ASYNC_NEVER_BLOCK=true)</li>
+ *     <li>level - INFO as deployed, DEBUG to include the per-lookup messages</li>
+ *     <li>path - local cache hit, or store hit with the local entry dropped before each call</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final String CITY = "Moscow";
+
+    @Param({"sync", "async", "async-never-block"})
+    public String mode;
+
+    @Param({"INFO", "DEBUG"})
+    public String level;
+
+    @Param({"local", "store"})
+    public String path;
+
+    private Appender<ILoggingEvent> appender;
+    private StubWeatherApi weatherApi;
+    private WeatherApiClient weatherApiClient;
+    private ForecastStore forecastStore;
+    private LocalWeatherCache localCache;
+    private WeatherService weatherService;
+    private LocalDateTime hour;
+    private String hourKey;
+
+    @Setup
+    public void setup() throws IOException, ValidationException {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        appender = buildAppender(context);
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+        context.getLogger("ru.pobopo.weather").setLevel(Level.toLevel(level));
+
+        weatherApi = new StubWeatherApi(0);
+        System.setProperty("BASE_URL", weatherApi.getBaseUrl());
+        System.setProperty("API_KEY", "benchmark");
+        System.setProperty("FORECAST_STORE", "memory");
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Gson gson = new GsonConfig().gson();
+        weatherApiClient = new WeatherApiClient(gson, meterRegistry);
+        forecastStore = new ForecastStoreConfig().forecastStore(new WeatherObjectCodec(gson), meterRegistry);
+        localCache = new LocalWeatherCache(meterRegistry);
+        weatherService = new WeatherService(
+            weatherApiClient, localCache, new FreshnessPolicy(), forecastStore, meterRegistry
+        );
+
+        hour = LocalDate.now().plusDays(1).atTime(12, 0);
+        hourKey = ForecastKeys.hourKey(CITY, hour);
+        weatherService.getForecast(CITY, hour);
+    }
+
+    @Benchmark
+    public WeatherObject getForecast() throws IOException, ValidationException {
+        if ("store".equals(path)) {
+            localCache.invalidate(hourKey);
+        }
+        return weatherService.getForecast(CITY, hour);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        weatherService.shutdown();
+        weatherApiClient.shutdown();
+        forecastStore.close();
+        weatherApi.close();
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)
+            .detachAndStopAllAppenders();
+    }
+
+    /**
+     * Same appenders as logback-spring.xml, the console replaced by a null stream.
+     */
+    private Appender<ILoggingEvent> buildAppender(LoggerContext context) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p ${PID:- } --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> sync = new OutputStreamAppender<>();
+        sync.setContext(context);
+        sync.setEncoder(encoder);
+        sync.setOutputStream(OutputStream.nullOutputStream());
+        sync.start();
+        if ("sync".equals(mode)) {
+            return sync;
+        }
+
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setQueueSize(8192);
+        async.setDiscardingThreshold(0);
+        async.setNeverBlock("async-never-block".equals(mode));
+        async.setIncludeCallerData(false);
+        async.addAppender(sync);
+        async.start();
+        return async;
+    }
+}
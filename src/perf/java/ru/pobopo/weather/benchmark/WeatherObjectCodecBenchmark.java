@@ -0,0 +1,83 @@
+package ru.pobopo.weather.benchmark;
+
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.pobopo.weather.cache.WeatherObjectCodec;
+import ru.pobopo.weather.config.GsonConfig;
+import ru.pobopo.weather.model.WeatherObject;
+
+/**
+ * Redis value format: the binary codec against the json values written by previous versions. Besides ns/op,
+ * the setup prints the value size of each format in bytes per key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherObjectCodecBenchmark {
+    private static final String CITY = "Moscow";
+    /**
+     * Reflective gson layout stored before the iso date adapter.
+     */
+    private static final String LEGACY_JSON = "{\"city\":\"Moscow\",\"temperature\":-2.4,\"unit\":\"celsius\","
+        + "\"date\":{\"date\":{\"year\":2022,\"month\":11,\"day\":21},"
+        + "\"time\":{\"hour\":14,\"minute\":0,\"second\":0,\"nano\":0}}}";
+
+    private Gson gson;
+    private WeatherObjectCodec codec;
+    private WeatherObject weatherObject;
+    private byte[] encoded;
+    private byte[] json;
+    private byte[] legacyJson;
+
+    @Setup
+    public void setup() {
+        gson = new GsonConfig().gson();
+        codec = new WeatherObjectCodec(gson);
+        weatherObject = new WeatherObject(CITY, -2.4f, "celsius", LocalDateTime.of(2022, 11, 21, 14, 0));
+        encoded = codec.encode(weatherObject, CITY);
+        json = gson.toJson(weatherObject).getBytes(StandardCharsets.UTF_8);
+        legacyJson = LEGACY_JSON.getBytes(StandardCharsets.UTF_8);
+        System.out.printf("%nvalue bytes per key: binary %d, json %d, legacy json %d%n",
+            encoded.length, json.length, legacyJson.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(weatherObject, CITY);
+    }
+
+    @Benchmark
+    public WeatherObject decode() {
+        return codec.decode(encoded, CITY);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return gson.toJson(weatherObject).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public WeatherObject decodeJson() {
+        return codec.decode(json, CITY);
+    }
+
+    @Benchmark
+    public WeatherObject decodeLegacyJson() {
+        return codec.decode(legacyJson, CITY);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.pobopo.weather.loadtest;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency histograms and error counts per request of the mix.
+ */
+class LoadReport {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final List<String> names;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    LoadReport(List<String> names) {
+        this.names = names;
+        for (String name : names) {
+            stats.put(name, new Stats());
+        }
+    }
+
+    void record(String name, long latencyNanos, boolean ok) {
+        Stats scenario = stats.get(name);
+        scenario.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        if (!ok) {
+            scenario.errors.increment();
+        }
+    }
+
+    void print(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%-14s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+            "request", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        long totalErrors = 0;
+        for (String name : names) {
+            Stats scenario = stats.get(name);
+            total.add(scenario.latency);
+            totalErrors += scenario.errors.sum();
+            printRow(out, name, scenario.latency, scenario.errors.sum(), seconds);
+        }
+        printRow(out, "total", total, totalErrors, seconds);
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram latency, long errors, double seconds) {
+        out.printf("%-14s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+            name,
+            latency.getTotalCount(),
+            errors,
+            latency.getTotalCount() / seconds,
+            millis(latency.getValueAtPercentile(50)),
+            millis(latency.getValueAtPercentile(90)),
+            millis(latency.getValueAtPercentile(99)),
+            millis(latency.getValueAtPercentile(99.9)),
+            millis(latency.getMaxValue())
+        );
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static class Stats {
+        private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,137 @@
+package ru.pobopo.weather.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.pobopo.weather.WeatherApplication;
+import ru.pobopo.weather.stub.EmbeddedRedis;
+import ru.pobopo.weather.stub.StubAuthServer;
+import ru.pobopo.weather.stub.StubWeatherApi;
+
+/**
+ * Starts the service in-process against local stand-ins for the weather api, the auth service and redis,
+ * then keeps {@code loadtest.concurrency} clients sending the request mix back to back and prints
+ * throughput and latency percentiles per request. Settings are system properties:
+ * <pre>
+ * loadtest.concurrency         concurrent clients, 64
+ * loadtest.warmup              seconds not measured, 10
+ * loadtest.duration            measured seconds, 30
+ * loadtest.mix                 see {@link RequestMix}
+ * loadtest.cities              city pool size, 200
+ * loadtest.users               auth user pool size, 1000
+ * loadtest.upstreamLatencyMs   stub weather api latency, 50
+ * loadtest.authLatencyMs       stub auth latency, 2
+ * </pre>
+ * Service settings such as WEB_MODE, VIRTUAL_THREADS, FORECAST_STORE or LOG_MODE are passed as system properties too.
+ */
+@Slf4j
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 64);
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup", 10));
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+        String mixSpec = System.getProperty("loadtest.mix", RequestMix.DEFAULT);
+        int cities = Integer.getInteger("loadtest.cities", 200);
+        int users = Integer.getInteger("loadtest.users", 1000);
+        long upstreamLatencyMs = Long.getLong("loadtest.upstreamLatencyMs", 50);
+        long authLatencyMs = Long.getLong("loadtest.authLatencyMs", 2);
+
+        try (
+            StubWeatherApi weatherApi = new StubWeatherApi(upstreamLatencyMs);
+            StubAuthServer authServer = new StubAuthServer(authLatencyMs);
+            EmbeddedRedis redis = new EmbeddedRedis()
+        ) {
+            System.setProperty("BASE_URL", weatherApi.getBaseUrl());
+            System.setProperty("API_KEY", "loadtest");
+            System.setProperty("AUTH_HOST", authServer.getHost());
+            System.setProperty("AUTH_PORT", String.valueOf(authServer.getPort()));
+            System.setProperty("REDIS_HOST", redis.getHost());
+            System.setProperty("REDIS_PORT", String.valueOf(redis.getPort()));
+
+            try (ConfigurableApplicationContext context = SpringApplication.run(
+                WeatherApplication.class, "--server.port=0"
+            )) {
+                String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+                RequestMix mix = new RequestMix(baseUrl, mixSpec, cities, users);
+                log.info("Load test of {}: {} clients, warmup {}, duration {}, mix {}",
+                    baseUrl, concurrency, warmup, duration, mixSpec);
+
+                LoadReport report = new LoadReport(mix.getNames());
+                long elapsed = run(mix, report, concurrency, warmup, duration);
+
+                System.out.printf("%nweb mode %s, store %s, virtual threads %s, %d clients, upstream latency %d ms%n",
+                    context.getEnvironment().getProperty("spring.main.web-application-type"),
+                    context.getEnvironment().getProperty("FORECAST_STORE", "redis"),
+                    context.getEnvironment().getProperty("VIRTUAL_THREADS", "false"),
+                    concurrency, upstreamLatencyMs);
+                report.print(System.out, elapsed);
+                System.out.printf("upstream requests %d, auth requests %d, redis keys %d%n",
+                    weatherApi.getRequests(), authServer.getRequests(), redis.size());
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Runs the clients through warmup and measurement, returns the measured time in nanos.
+     */
+    private static long run(RequestMix mix, LoadReport report, int concurrency, Duration warmup, Duration duration)
+        throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            new Client(client, mix, report, measureFrom, end, done).send();
+        }
+        done.await();
+        return System.nanoTime() - measureFrom;
+    }
+
+    /**
+     * Sends the next request as soon as the previous one completed, until the end of the run.
+     */
+    private static class Client {
+        private final HttpClient httpClient;
+        private final RequestMix mix;
+        private final LoadReport report;
+        private final long measureFrom;
+        private final long end;
+        private final CountDownLatch done;
+
+        private Client(HttpClient httpClient, RequestMix mix, LoadReport report, long measureFrom, long end,
+            CountDownLatch done) {
+            this.httpClient = httpClient;
+            this.mix = mix;
+            this.report = report;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.done = done;
+        }
+
+        private void send() {
+            long start = System.nanoTime();
+            if (start >= end) {
+                done.countDown();
+                return;
+            }
+            String name = mix.next();
+            HttpRequest request = mix.request(name);
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+                if (start >= measureFrom) {
+                    boolean ok = error == null && response.statusCode() < 300;
+                    report.record(name, System.nanoTime() - start, ok);
+                    if (!ok) {
+                        log.debug("{} failed: {}", request.uri(), error != null ? error.toString() : response.body());
+                    }
+                }
+                send();
+            });
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ru.pobopo.weather.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import ru.pobopo.weather.filter.AuthHeader;
+
+/**
+ * Weighted mix of the requests in requests.example, given as "name=weight,..." with the names
+ * forecast, current, batch, batch-ndjson, range, range-ndjson and bulk. Cities come from a fixed pool,
+ * forecast hours from the next two days, which the stub weather api always has.
+ */
+class RequestMix {
+    static final String DEFAULT = "forecast=50,current=20,batch=10,range=10,batch-ndjson=4,range-ndjson=4,bulk=2";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int BATCH_SIZE = 10;
+    private static final int BULK_SIZE = 100;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final int cities;
+    private final int users;
+    private final List<String> names = new ArrayList<>();
+    private final int[] cumulativeWeights;
+
+    RequestMix(String baseUrl, String spec, int cities, int users) {
+        this.baseUrl = baseUrl;
+        this.cities = cities;
+        this.users = users;
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Bad request mix entry " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight <= 0) {
+                continue;
+            }
+            request(parts[0].trim());
+            names.add(parts[0].trim());
+            total += weight;
+            weights.add(total);
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("Empty request mix " + spec);
+        }
+        cumulativeWeights = weights.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Picks a scenario by weight.
+     */
+    String next() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return names.get(i);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    HttpRequest request(String name) {
+        String city = city();
+        LocalDateTime hour = hour();
+        switch (name) {
+            case "forecast":
+                return get("/v1/forecast?city=" + city + "&dt=" + hour.format(DATE_FORMATTER)).build();
+            case "current":
+                return get("/v1/current?city=" + city).build();
+            case "batch":
+                return post("/v1/forecast/batch", batch()).build();
+            case "batch-ndjson":
+                return post("/v1/forecast/batch", batch()).header("Accept", NDJSON).build();
+            case "range":
+                return get(range(city, hour)).build();
+            case "range-ndjson":
+                return get(range(city, hour)).header("Accept", NDJSON).build();
+            case "bulk":
+                return builder("/v1/forecast/bulk")
+                    .header("Content-Type", NDJSON)
+                    .PUT(BodyPublishers.ofString(bulk()))
+                    .build();
+            default:
+                throw new IllegalArgumentException("Unknown request " + name);
+        }
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return builder(path).GET();
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return builder(path).header("Content-Type", "application/json").POST(BodyPublishers.ofString(json));
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(TIMEOUT)
+            .header(AuthHeader.NAME, "user" + ThreadLocalRandom.current().nextInt(users) + ";secret");
+    }
+
+    private String range(String city, LocalDateTime from) {
+        return "/v1/forecast/range?city=" + city
+            + "&from=" + from.format(DATE_FORMATTER)
+            + "&to=" + from.plusDays(1).format(DATE_FORMATTER);
+    }
+
+    private String batch() {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"city\":\"").append(city()).append("\",\"dt\":\"").append(hour().format(DATE_FORMATTER)).append("\"}");
+        }
+        return body.append(']').toString();
+    }
+
+    private String bulk() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < BULK_SIZE; i++) {
+            body.append("{\"city\":\"").append(city())
+                .append("\",\"temperature\":").append(random.nextInt(-30, 35))
+                .append(",\"unit\":\"celsius\",\"date\":\"").append(hour())
+                .append("\"}\n");
+        }
+        return body.toString();
+    }
+
+    private String city() {
+        return "city" + ThreadLocalRandom.current().nextInt(cities);
+    }
+
+    private static LocalDateTime hour() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(ThreadLocalRandom.current().nextInt(48));
+    }
+}
@@ -0,0 +1,357 @@
+package ru.pobopo.weather.stub;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process redis stand-in speaking RESP, enough for the forecast store:
+ * strings with expiry (GET, SET, SETEX, MGET, DEL, EXPIRE, TTL, PTTL), hashes (HSET, HGET, HGETALL, HDEL)
+ * and PING, SELECT, DBSIZE, FLUSHALL. EVALSHA runs the hash layout's ttl extension whatever the sha,
+ * other scripts are not supported. Replies to pipelined commands are flushed together, like redis does.
+ */
+@Slf4j
+public class EmbeddedRedis implements AutoCloseable {
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PONG = "+PONG\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NIL = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Entry> data = new ConcurrentHashMap<>();
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+
+    /**
+     * Starts on a free local port.
+     */
+    public EmbeddedRedis() throws IOException {
+        serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "embedded-redis");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                clients.add(socket);
+                Thread thread = new Thread(() -> serve(socket), "embedded-redis-client");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Embedded redis accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                byte[][] command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                execute(command, out);
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (SocketException | EOFException e) {
+            // client went away
+        } catch (IOException e) {
+            log.warn("Embedded redis client failed", e);
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    private void execute(byte[][] command, OutputStream out) throws IOException {
+        String name = new String(command[0], StandardCharsets.US_ASCII).toUpperCase();
+        switch (name) {
+            case "PING":
+                out.write(PONG);
+                break;
+            case "SELECT":
+            case "QUIT":
+                out.write(OK);
+                break;
+            case "DBSIZE":
+                writeInt(out, data.size());
+                break;
+            case "FLUSHALL":
+            case "FLUSHDB":
+                data.clear();
+                out.write(OK);
+                break;
+            case "GET":
+                writeBulk(out, string(key(command, 1)));
+                break;
+            case "MGET":
+                writeArrayHeader(out, command.length - 1);
+                for (int i = 1; i < command.length; i++) {
+                    writeBulk(out, string(key(command, i)));
+                }
+                break;
+            case "SET":
+                set(command, out);
+                break;
+            case "SETEX":
+                data.put(key(command, 1), new Entry(command[3], expiresAt(command[2], 1000)));
+                out.write(OK);
+                break;
+            case "DEL":
+                int deleted = 0;
+                for (int i = 1; i < command.length; i++) {
+                    deleted += data.remove(key(command, i)) != null ? 1 : 0;
+                }
+                writeInt(out, deleted);
+                break;
+            case "EXPIRE":
+                Entry expiring = entry(key(command, 1));
+                if (expiring != null) {
+                    expiring.expiresAt = expiresAt(command[2], 1000);
+                }
+                writeInt(out, expiring != null ? 1 : 0);
+                break;
+            case "TTL":
+            case "PTTL":
+                writeInt(out, ttl(key(command, 1), name.equals("TTL") ? 1000 : 1));
+                break;
+            case "HSET":
+                hset(command, out);
+                break;
+            case "HGET":
+                Map<String, byte[]> hash = hash(key(command, 1));
+                writeBulk(out, hash != null ? hash.get(key(command, 2)) : null);
+                break;
+            case "HGETALL":
+                hgetAll(key(command, 1), out);
+                break;
+            case "HDEL":
+                Map<String, byte[]> fields = hash(key(command, 1));
+                int removed = 0;
+                for (int i = 2; fields != null && i < command.length; i++) {
+                    removed += fields.remove(key(command, i)) != null ? 1 : 0;
+                }
+                writeInt(out, removed);
+                break;
+            case "EVALSHA":
+                String extended = key(command, 3);
+                long remaining = ttl(extended, 1000);
+                long requested = Long.parseLong(new String(command[4], StandardCharsets.US_ASCII));
+                boolean extend = remaining != -2 && remaining < requested;
+                if (extend) {
+                    entry(extended).expiresAt = expiresAt(command[4], 1000);
+                }
+                writeInt(out, extend ? 1 : 0);
+                break;
+            default:
+                writeError(out, "ERR unknown command '" + name + "'");
+        }
+    }
+
+    private void set(byte[][] command, OutputStream out) throws IOException {
+        long expiresAt = 0;
+        for (int i = 3; i + 1 < command.length; i += 2) {
+            String option = new String(command[i], StandardCharsets.US_ASCII).toUpperCase();
+            if (option.equals("EX")) {
+                expiresAt = expiresAt(command[i + 1], 1000);
+            } else if (option.equals("PX")) {
+                expiresAt = expiresAt(command[i + 1], 1);
+            }
+        }
+        data.put(key(command, 1), new Entry(command[2], expiresAt));
+        out.write(OK);
+    }
+
+    private void hset(byte[][] command, OutputStream out) throws IOException {
+        String key = key(command, 1);
+        Entry entry = entry(key);
+        if (entry == null || !(entry.value instanceof Map)) {
+            entry = new Entry(new ConcurrentHashMap<String, byte[]>(), 0);
+            data.put(key, entry);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, byte[]> hash = (Map<String, byte[]>) entry.value;
+        int added = 0;
+        for (int i = 2; i + 1 < command.length; i += 2) {
+            added += hash.put(key(command, i), command[i + 1]) == null ? 1 : 0;
+        }
+        writeInt(out, added);
+    }
+
+    private void hgetAll(String key, OutputStream out) throws IOException {
+        Map<String, byte[]> hash = hash(key);
+        if (hash == null) {
+            writeArrayHeader(out, 0);
+            return;
+        }
+        Set<Map.Entry<String, byte[]>> fields = Map.copyOf(hash).entrySet();
+        writeArrayHeader(out, fields.size() * 2);
+        for (Map.Entry<String, byte[]> field : fields) {
+            writeBulk(out, field.getKey().getBytes(StandardCharsets.ISO_8859_1));
+            writeBulk(out, field.getValue());
+        }
+    }
+
+    private long ttl(String key, long unitMs) {
+        Entry entry = entry(key);
+        if (entry == null) {
+            return -2;
+        }
+        if (entry.expiresAt == 0) {
+            return -1;
+        }
+        return (entry.expiresAt - System.currentTimeMillis() + unitMs / 2) / unitMs;
+    }
+
+    private Entry entry(String key) {
+        Entry entry = data.get(key);
+        if (entry != null && entry.expiresAt != 0 && entry.expiresAt <= System.currentTimeMillis()) {
+            data.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private byte[] string(String key) {
+        Entry entry = entry(key);
+        return entry != null && entry.value instanceof byte[] ? (byte[]) entry.value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> hash(String key) {
+        Entry entry = entry(key);
+        return entry != null && entry.value instanceof Map ? (Map<String, byte[]>) entry.value : null;
+    }
+
+    /**
+     * Keys and fields are kept as latin-1 strings, which maps every byte to one char.
+     */
+    private static String key(byte[][] command, int index) {
+        return new String(command[index], StandardCharsets.ISO_8859_1);
+    }
+
+    private static long expiresAt(byte[] value, long unitMs) {
+        return System.currentTimeMillis() + Long.parseLong(new String(value, StandardCharsets.US_ASCII)) * unitMs;
+    }
+
+    private static byte[][] readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("Unsupported request type " + (char) type);
+        }
+        byte[][] command = new byte[(int) readNumber(in)][];
+        for (int i = 0; i < command.length; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Bulk string expected");
+            }
+            byte[] value = in.readNBytes((int) readNumber(in));
+            in.read();
+            in.read();
+            command[i] = value;
+        }
+        return command;
+    }
+
+    private static long readNumber(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            if (b == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (b - '0');
+            }
+        }
+        in.read();
+        return negative ? -value : value;
+    }
+
+    private static void writeBulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write(NIL);
+            return;
+        }
+        out.write('$');
+        out.write(String.valueOf(value.length).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(value);
+        out.write(CRLF);
+    }
+
+    private static void writeInt(OutputStream out, long value) throws IOException {
+        out.write(':');
+        out.write(String.valueOf(value).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static void writeArrayHeader(OutputStream out, int size) throws IOException {
+        out.write('*');
+        out.write(String.valueOf(size).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static void writeError(OutputStream out, String message) throws IOException {
+        out.write('-');
+        out.write(message.getBytes(StandardCharsets.UTF_8));
+        out.write(CRLF);
+    }
+
+    private static class Entry {
+        private final Object value;
+        private volatile long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
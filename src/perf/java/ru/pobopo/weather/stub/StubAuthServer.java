@@ -0,0 +1,71 @@
+package ru.pobopo.weather.stub;
+
+import com.google.protobuf.BoolValue;
+import io.grpc.Server;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import ru.pobopo.weather.grpc.AuthServiceGrpc;
+import ru.pobopo.weather.grpc.Credits;
+
+/**
+ * Auth service stand-in on a free local port. Every user is accepted unless the password is
+ * {@link #REJECTED_PASSWORD}, answers are delayed by {@code latencyMs} without holding a thread.
+ */
+public class StubAuthServer implements AutoCloseable {
+    public static final String REJECTED_PASSWORD = "wrong";
+
+    private final Server server;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder requests = new LongAdder();
+
+    public StubAuthServer(long latencyMs) throws IOException {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stub-auth");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+            .addService(new AuthServiceGrpc.AuthServiceImplBase() {
+                @Override
+                public void authUser(Credits request, StreamObserver<BoolValue> responseObserver) {
+                    requests.increment();
+                    BoolValue result = BoolValue.of(!REJECTED_PASSWORD.equals(request.getPassword()));
+                    Runnable respond = () -> {
+                        responseObserver.onNext(result);
+                        responseObserver.onCompleted();
+                    };
+                    if (latencyMs > 0) {
+                        scheduler.schedule(respond, latencyMs, TimeUnit.MILLISECONDS);
+                    } else {
+                        respond.run();
+                    }
+                }
+            })
+            .build()
+            .start();
+    }
+
+    public String getHost() {
+        return "127.0.0.1";
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+        scheduler.shutdownNow();
+    }
+}
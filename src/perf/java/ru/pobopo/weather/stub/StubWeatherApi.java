@@ -0,0 +1,138 @@
+package ru.pobopo.weather.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the weather api serving recorded /forecast.json and /current.json payloads.
+ * Recorded dates are moved to start today, so every forecast hour the service asks for is found.
+ */
+public class StubWeatherApi implements AutoCloseable {
+    private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final String RECORDED_CITY = "\"name\":\"Moscow\"";
+
+    static {
+        // responses are written in several chunks, without it Nagle delays them behind delayed acks
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMs;
+    private final byte[] forecast;
+    private final String current;
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * Starts on a free local port, every response is delayed by {@code latencyMs}.
+     */
+    public StubWeatherApi(long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        forecast = payload("forecast.json").getBytes(StandardCharsets.UTF_8);
+        current = payload("current.json");
+
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-weather-api");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/forecast.json", exchange -> respond(exchange, forecast));
+        server.createContext("/current.json", exchange -> respond(
+            exchange,
+            current.replace(RECORDED_CITY, "\"name\":\"" + query(exchange, "q") + "\"").getBytes(StandardCharsets.UTF_8)
+        ));
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Recorded payload with dates moved to start today.
+     */
+    public static String payload(String name) {
+        return rebase(load("/stub/" + name));
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        requests.increment();
+        try {
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String query(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return "";
+        }
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq > 0 && param.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8).replace("\"", "");
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Shifts every date by the distance between the first recorded date and today.
+     */
+    private static String rebase(String payload) {
+        Matcher first = DATE.matcher(payload);
+        if (!first.find()) {
+            return payload;
+        }
+        long shift = LocalDate.parse(first.group()).until(LocalDate.now(), ChronoUnit.DAYS);
+        return DATE.matcher(payload).replaceAll(match -> LocalDate.parse(match.group()).plusDays(shift).toString());
+    }
+
+    private static String load(String resource) {
+        try (InputStream in = StubWeatherApi.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing payload " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.pobopo.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AuthResultCacheTest {
+    private AuthResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty("AUTH_CACHE_POSITIVE_TTL_SECONDS", "60");
+        System.setProperty("AUTH_CACHE_NEGATIVE_TTL_SECONDS", "1");
+        cache = new AuthResultCache(new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("AUTH_CACHE_POSITIVE_TTL_SECONDS");
+        System.clearProperty("AUTH_CACHE_NEGATIVE_TTL_SECONDS");
+    }
+
+    @Test
+    void derivesStableKeyWithoutPlainCredentials() {
+        String key = cache.credentialsKey("user", "secret");
+
+        assertEquals(key, cache.credentialsKey("user", "secret"));
+        assertFalse(key.contains("user") || key.contains("secret"));
+        assertNotEquals(key, cache.credentialsKey("user", "secret2"));
+        assertNotEquals(cache.credentialsKey("ab", "c"), cache.credentialsKey("a", "bc"));
+    }
+
+    @Test
+    void usesKeyPerProcess() {
+        AuthResultCache other = new AuthResultCache(new SimpleMeterRegistry());
+
+        assertNotEquals(cache.credentialsKey("user", "secret"), other.credentialsKey("user", "secret"));
+    }
+
+    @Test
+    void expiresRejectionsBeforeAcceptances() throws InterruptedException {
+        String accepted = cache.credentialsKey("user", "secret");
+        String rejected = cache.credentialsKey("user", "wrong");
+        String retried = cache.credentialsKey("user", "retried");
+        cache.put(accepted, true);
+        cache.put(rejected, false);
+        // a later acceptance replaces the rejection and its ttl
+        cache.put(retried, false);
+        cache.put(retried, true);
+
+        assertEquals(false, cache.get(rejected));
+        Thread.sleep(1200);
+
+        assertNull(cache.get(rejected));
+        assertEquals(true, cache.get(accepted));
+        assertEquals(true, cache.get(retried));
+    }
+
+    @Test
+    void invalidatesCredentials() {
+        cache.put(cache.credentialsKey("user", "secret"), true);
+        cache.put(cache.credentialsKey("other", "secret"), true);
+
+        cache.invalidate("user", "secret");
+        assertNull(cache.get(cache.credentialsKey("user", "secret")));
+        assertTrue(cache.get(cache.credentialsKey("other", "secret")));
+
+        cache.invalidateAll();
+        assertNull(cache.get(cache.credentialsKey("other", "secret")));
+    }
+}
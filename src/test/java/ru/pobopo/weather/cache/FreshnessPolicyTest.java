@@ -0,0 +1,62 @@
+package ru.pobopo.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class FreshnessPolicyTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 10, 14, 30);
+
+    private final FreshnessPolicy policy = new FreshnessPolicy();
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("FORECAST_TTL_MIN_SECONDS");
+        System.clearProperty("FORECAST_TTL_MAX_SECONDS");
+        System.clearProperty("FORECAST_TTL_PAST_SECONDS");
+        System.clearProperty("PUSHED_FORECAST_TTL_SECONDS");
+    }
+
+    @Test
+    void growsTtlWithHoursAhead() {
+        assertEquals(900, policy.forecastTtlSeconds(NOW, NOW));
+        assertEquals(900 + 120, policy.forecastTtlSeconds(NOW.plusHours(1), NOW));
+        assertEquals(900 + 24 * 120, policy.forecastTtlSeconds(NOW.plusDays(1), NOW));
+    }
+
+    @Test
+    void capsTtlOfDistantHours() {
+        assertEquals(900 + 172 * 120, policy.forecastTtlSeconds(NOW.plusHours(172), NOW));
+        assertEquals(6 * 3600, policy.forecastTtlSeconds(NOW.plusHours(173), NOW));
+        assertEquals(6 * 3600, policy.forecastTtlSeconds(NOW.plusDays(14), NOW));
+    }
+
+    @Test
+    void usesPastTtlForPastHours() {
+        // the hour in progress is still revised, so it keeps the shortest forecast ttl
+        assertEquals(900, policy.forecastTtlSeconds(NOW.minusMinutes(30), NOW));
+        assertEquals(3600, policy.forecastTtlSeconds(NOW.minusHours(1), NOW));
+        assertEquals(3600, policy.forecastTtlSeconds(NOW.minusDays(2), NOW));
+    }
+
+    @Test
+    void keepsPushedForecastsForAWeek() {
+        assertEquals(7 * 24 * 3600, policy.pushedTtlSeconds());
+    }
+
+    @Test
+    void readsTtlsFromEnvironment() {
+        System.setProperty("FORECAST_TTL_MIN_SECONDS", "60");
+        System.setProperty("FORECAST_TTL_MAX_SECONDS", "300");
+        System.setProperty("FORECAST_TTL_PAST_SECONDS", "30");
+        System.setProperty("PUSHED_FORECAST_TTL_SECONDS", "600");
+        FreshnessPolicy configured = new FreshnessPolicy();
+
+        assertEquals(60 + 120, configured.forecastTtlSeconds(NOW.plusHours(1), NOW));
+        assertEquals(300, configured.forecastTtlSeconds(NOW.plusHours(3), NOW));
+        assertEquals(30, configured.forecastTtlSeconds(NOW.minusHours(1), NOW));
+        assertEquals(600, configured.pushedTtlSeconds());
+    }
+}
@@ -0,0 +1,157 @@
+package ru.pobopo.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+class HashRedisForecastLayoutTest {
+    private static final String CITY = "Moscow";
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 10, 14, 0);
+    private static final byte[] VALUE = {1, 2, 3};
+
+    private final Pipeline pipeline = mock(Pipeline.class);
+    private final HashRedisForecastLayout layout = new HashRedisForecastLayout(false);
+
+    @Test
+    void writesFieldPrefixedWithExpiry() {
+        long before = nowSeconds();
+        layout.write(pipeline, CITY, DATE, VALUE, 600);
+
+        ArgumentCaptor<byte[]> field = ArgumentCaptor.forClass(byte[].class);
+        verify(pipeline).hset(eq(dayKey()), eq(hourField()), field.capture());
+        ByteBuffer buffer = ByteBuffer.wrap(field.getValue());
+        long expiresAt = buffer.getLong();
+        assertTrue(expiresAt >= before + 600 && expiresAt <= nowSeconds() + 600, "expiry " + expiresAt);
+        byte[] value = new byte[buffer.remaining()];
+        buffer.get(value);
+        assertArrayEquals(VALUE, value);
+        // the hash ttl is only ever extended to the ttl of the field
+        ArgumentCaptor<List<byte[]>> keys = listCaptor();
+        ArgumentCaptor<List<byte[]>> args = listCaptor();
+        verify(pipeline).evalsha(any(byte[].class), keys.capture(), args.capture());
+        assertArrayEquals(dayKey(), keys.getValue().get(0));
+        assertEquals("600", SafeEncoder.encode(args.getValue().get(0)));
+    }
+
+    @Test
+    void readsFieldBeforeItsExpiry() {
+        Response<byte[]> field = response(field(nowSeconds() + 100));
+        when(pipeline.hget(dayKey(), hourField())).thenReturn(field);
+
+        RedisRead read = layout.read(pipeline, CITY, DATE);
+
+        assertArrayEquals(VALUE, read.value());
+        assertTrue(read.ttl() > 95 && read.ttl() <= 100, "ttl " + read.ttl());
+        assertFalse(read.legacy());
+    }
+
+    @Test
+    void readsExpiredFieldAsMissing() {
+        Response<byte[]> field = response(field(nowSeconds() - 1));
+        when(pipeline.hget(dayKey(), hourField())).thenReturn(field);
+
+        RedisRead read = layout.read(pipeline, CITY, DATE);
+
+        assertNull(read.value());
+        assertNull(read.ttl());
+    }
+
+    @Test
+    void readsDayWithExpiredHoursMissing() {
+        Map<byte[], byte[]> fields = new HashMap<>();
+        fields.put(SafeEncoder.encode(ForecastKeys.hourField(10)), field(nowSeconds() + 100));
+        fields.put(SafeEncoder.encode(ForecastKeys.hourField(11)), field(nowSeconds() - 1));
+        Response<Map<byte[], byte[]>> day = response(fields);
+        when(pipeline.hgetAll(dayKey())).thenReturn(day);
+
+        List<RedisRead> reads = layout.readDay(pipeline, CITY, DATE.toLocalDate());
+
+        assertEquals(24, reads.size());
+        assertArrayEquals(VALUE, reads.get(10).value());
+        assertNull(reads.get(11).value());
+        assertNull(reads.get(12).value());
+    }
+
+    @Test
+    void fallsBackToStringLayoutWhileMigrating() {
+        byte[] legacyKey = SafeEncoder.encode(ForecastKeys.hourKey(CITY, DATE));
+        Response<byte[]> field = response(null);
+        Response<byte[]> legacyValue = response(VALUE);
+        Response<Long> legacyTtl = response(300L);
+        when(pipeline.hget(dayKey(), hourField())).thenReturn(field);
+        when(pipeline.get(legacyKey)).thenReturn(legacyValue);
+        when(pipeline.ttl(legacyKey)).thenReturn(legacyTtl);
+
+        RedisRead read = new HashRedisForecastLayout(true).read(pipeline, CITY, DATE);
+
+        assertTrue(read.legacy());
+        assertArrayEquals(VALUE, read.value());
+        assertEquals(300L, read.ttl());
+    }
+
+    @Test
+    void loadsScriptWhenRedisDoesNotKnowIt() {
+        Jedis jedis = mock(Jedis.class);
+
+        assertTrue(layout.recover(jedis, new JedisDataException("NOSCRIPT No matching script.")));
+        verify(jedis).scriptLoad(any(byte[].class));
+    }
+
+    @Test
+    void doesNotRecoverFromOtherErrors() {
+        Jedis jedis = mock(Jedis.class);
+
+        assertFalse(layout.recover(jedis, new JedisDataException("WRONGTYPE Operation against a key")));
+        assertFalse(layout.recover(jedis, new JedisDataException((String) null)));
+        verifyNoInteractions(jedis);
+    }
+
+    private static byte[] field(long expiresAt) {
+        return ByteBuffer.allocate(Long.BYTES + VALUE.length).putLong(expiresAt).put(VALUE).array();
+    }
+
+    private static byte[] dayKey() {
+        return SafeEncoder.encode(ForecastKeys.dayKey(CITY, DATE.toLocalDate()));
+    }
+
+    private static byte[] hourField() {
+        return SafeEncoder.encode(ForecastKeys.hourField(DATE.getHour()));
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<byte[]>> listCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Response<T> response(T value) {
+        Response<T> response = mock(Response.class);
+        when(response.get()).thenReturn(value);
+        return response;
+    }
+}
@@ -0,0 +1,125 @@
+package ru.pobopo.weather.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+import ru.pobopo.weather.config.GsonConfig;
+import ru.pobopo.weather.model.WeatherObject;
+
+class WeatherObjectCodecTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 10, 14, 30);
+
+    private final WeatherObjectCodec codec = new WeatherObjectCodec(new GsonConfig().gson());
+
+    @Test
+    void roundTripsKnownUnits() {
+        for (String unit : new String[] {"celsius", "fahrenheit"}) {
+            WeatherObject weatherObject = new WeatherObject("Moscow", -12.5f, unit, DATE);
+            assertEquals(weatherObject, codec.decode(codec.encode(weatherObject, "Moscow"), "Moscow"));
+        }
+    }
+
+    @Test
+    void roundTripsOtherUnit() {
+        WeatherObject weatherObject = new WeatherObject("Moscow", 260.3f, "kelvin", DATE);
+        assertEquals(weatherObject, codec.decode(codec.encode(weatherObject, "Moscow"), "Moscow"));
+    }
+
+    @Test
+    void roundTripsNullFields() {
+        WeatherObject weatherObject = new WeatherObject(null, 0f, null, null);
+        byte[] data = codec.encode(weatherObject, "Moscow");
+
+        WeatherObject decoded = codec.decode(data, "Moscow");
+        assertNull(decoded.getUnit());
+        assertNull(decoded.getDate());
+        assertEquals(0f, decoded.getTemperature());
+        // a missing city is filled in from the key
+        assertEquals("Moscow", decoded.getCity());
+    }
+
+    @Test
+    void omitsCityMatchingTheKey() {
+        WeatherObject weatherObject = new WeatherObject("Moscow", 1f, "celsius", DATE);
+        byte[] sameCity = codec.encode(weatherObject, "Moscow");
+        byte[] otherCity = codec.encode(weatherObject, "Saint Petersburg");
+
+        assertEquals(sameCity.length + Short.BYTES + "Moscow".length(), otherCity.length);
+        assertEquals("Moscow", codec.decode(otherCity, "Saint Petersburg").getCity());
+        assertEquals("Saint Petersburg", codec.decode(sameCity, "Saint Petersburg").getCity());
+    }
+
+    @Test
+    void roundTripsNonAsciiCity() {
+        WeatherObject weatherObject = new WeatherObject("Нижний Новгород", 3f, "celsius", DATE);
+        assertEquals(weatherObject, codec.decode(codec.encode(weatherObject, "Nizhny Novgorod"), "Nizhny Novgorod"));
+    }
+
+    @Test
+    void roundTripsLongestStrings() {
+        String city = "c".repeat(WeatherObjectCodec.MAX_STRING_BYTES);
+        String unit = "u".repeat(WeatherObjectCodec.MAX_STRING_BYTES);
+        WeatherObject weatherObject = new WeatherObject(city, 1f, unit, DATE);
+        assertEquals(weatherObject, codec.decode(codec.encode(weatherObject, "Moscow"), "Moscow"));
+    }
+
+    @Test
+    void rejectsTooLongStrings() {
+        String tooLong = "ж".repeat(WeatherObjectCodec.MAX_STRING_BYTES / 2 + 1);
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> codec.encode(new WeatherObject(tooLong, 1f, "celsius", DATE), "Moscow")
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> codec.encode(new WeatherObject("Moscow", 1f, tooLong, DATE), "Moscow")
+        );
+    }
+
+    @Test
+    void truncatesDateToMinutes() {
+        WeatherObject weatherObject = new WeatherObject("Moscow", 1f, "celsius", DATE.withSecond(45).withNano(1));
+        assertEquals(DATE, codec.decode(codec.encode(weatherObject, "Moscow"), "Moscow").getDate());
+    }
+
+    @Test
+    void encodesDeterministically() {
+        WeatherObject weatherObject = new WeatherObject("Moscow", 1f, "celsius", DATE);
+        assertArrayEquals(codec.encode(weatherObject, "Moscow"), codec.encode(weatherObject, "Moscow"));
+    }
+
+    @Test
+    void decodesLegacyJson() {
+        String json = "{\"city\":\"Moscow\",\"temperature\":-3.5,\"unit\":\"celsius\",\"date\":"
+            + "{\"date\":{\"year\":2024,\"month\":3,\"day\":10},\"time\":{\"hour\":14,\"minute\":30,\"second\":0}}}";
+        WeatherObject decoded = codec.decode(json.getBytes(StandardCharsets.UTF_8), "Moscow");
+        assertEquals(new WeatherObject("Moscow", -3.5f, "celsius", DATE), decoded);
+    }
+
+    @Test
+    void decodesIsoDateJson() {
+        String json = "{\"city\":\"Moscow\",\"temperature\":2,\"unit\":\"celsius\",\"date\":\"2024-03-10T14:30\"}";
+        WeatherObject decoded = codec.decode(json.getBytes(StandardCharsets.UTF_8), "Moscow");
+        assertEquals(new WeatherObject("Moscow", 2f, "celsius", DATE), decoded);
+    }
+
+    @Test
+    void decodesMissingValueAsNull() {
+        assertNull(codec.decode(null, "Moscow"));
+        assertNull(codec.decode(new byte[0], "Moscow"));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        IllegalArgumentException e = assertThrows(
+            IllegalArgumentException.class, () -> codec.decode(new byte[] {9, 0, 0, 0, 0, 0, 0}, "Moscow")
+        );
+        assertTrue(e.getMessage().contains("version"));
+    }
+}
@@ -0,0 +1,126 @@
+package ru.pobopo.weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.BoolValue;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.pobopo.weather.cache.AuthResultCache;
+import ru.pobopo.weather.grpc.AuthServiceGrpc;
+import ru.pobopo.weather.grpc.Credits;
+
+class AuthServiceTest {
+    private static final String REJECTED_PASSWORD = "wrong";
+    private static final String FAILING_PASSWORD = "unavailable";
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private volatile long latencyMs;
+    private Server server;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+            .addService(new AuthServiceGrpc.AuthServiceImplBase() {
+                @Override
+                public void authUser(Credits request, StreamObserver<BoolValue> responseObserver) {
+                    requests.incrementAndGet();
+                    scheduler.schedule(() -> {
+                        if (FAILING_PASSWORD.equals(request.getPassword())) {
+                            responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                            return;
+                        }
+                        responseObserver.onNext(BoolValue.of(!REJECTED_PASSWORD.equals(request.getPassword())));
+                        responseObserver.onCompleted();
+                    }, latencyMs, TimeUnit.MILLISECONDS);
+                }
+            })
+            .build()
+            .start();
+        System.setProperty("AUTH_HOST", "127.0.0.1");
+        System.setProperty("AUTH_PORT", String.valueOf(server.getPort()));
+        System.setProperty("AUTH_DEADLINE_MS", "500");
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        authService = new AuthService(new AuthResultCache(meterRegistry), meterRegistry);
+        // connects the channel, so the first call of a test doesn't run into the deadline
+        authService.authUser("warmup", "warmup");
+        requests.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        authService.shutdown();
+        server.shutdownNow();
+        scheduler.shutdownNow();
+        System.clearProperty("AUTH_HOST");
+        System.clearProperty("AUTH_PORT");
+        System.clearProperty("AUTH_DEADLINE_MS");
+    }
+
+    @Test
+    void cachesAcceptance() {
+        assertTrue(authService.authUser("user", "secret"));
+        assertTrue(authService.authUser("user", "secret"));
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void cachesRejection() {
+        assertFalse(authService.authUser("user", REJECTED_PASSWORD));
+        assertFalse(authService.authUser("user", REJECTED_PASSWORD));
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void coalescesConcurrentChecks() {
+        latencyMs = 100;
+        CompletableFuture<Boolean> first = authService.authUserAsync("user", "secret");
+        CompletableFuture<Boolean> second = authService.authUserAsync("user", "secret");
+
+        assertTrue(first.join());
+        assertTrue(second.join());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void rejectsWithoutCachingWhenDeadlineIsExceeded() {
+        latencyMs = 1500;
+        assertFalse(authService.authUser("user", "secret"));
+
+        latencyMs = 0;
+        assertTrue(authService.authUser("user", "secret"));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void passesOtherFailuresOn() {
+        CompletionException e = assertThrows(
+            CompletionException.class, () -> authService.authUser("user", FAILING_PASSWORD)
+        );
+        assertInstanceOf(StatusRuntimeException.class, e.getCause());
+        assertEquals(Status.Code.UNAVAILABLE, ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+    }
+}
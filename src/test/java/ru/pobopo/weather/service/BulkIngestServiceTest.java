@@ -0,0 +1,112 @@
+package ru.pobopo.weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.pobopo.weather.model.BulkIngestResult;
+import ru.pobopo.weather.model.WeatherObject;
+
+class BulkIngestServiceTest {
+    private static final String VALID = "{\"city\":\"Moscow\",\"temperature\":1.5,\"unit\":\"celsius\","
+        + "\"date\":\"2024-03-10T14:00\"}";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> savedBatches = new ArrayList<>();
+    private WeatherService weatherService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        weatherService = mock(WeatherService.class);
+        doCallRealMethod().when(weatherService).validateWeather(any());
+        doAnswer(invocation -> savedBatches.add(invocation.<List<WeatherObject>>getArgument(0).size()))
+            .when(weatherService).savePushed(anyList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("BULK_BATCH_SIZE");
+        System.clearProperty("BULK_MAX_ERRORS");
+    }
+
+    @Test
+    void countsAcceptedAndRejectedItems() throws IOException {
+        BulkIngestResult result = ingest("[" + VALID + ","
+            + "{\"temperature\":2,\"date\":\"2024-03-10T15:00\"},"
+            + "{\"city\":\"Moscow\",\"temperature\":3},"
+            + "{\"city\":\"Moscow\",\"temperature\":4,\"date\":\"tomorrow\"},"
+            + VALID + "]");
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(3, result.getRejected());
+        assertEquals("Item 1: City is missing!", result.getErrors().get(0));
+        assertEquals("Item 2: Date is missing!", result.getErrors().get(1));
+        assertTrue(result.getErrors().get(2).startsWith("Item 3: "), result.getErrors().get(2));
+        assertEquals(2, meterRegistry.counter("weather.bulk.items", "result", "accepted").count());
+        assertEquals(3, meterRegistry.counter("weather.bulk.items", "result", "rejected").count());
+    }
+
+    @Test
+    void readsNewlineDelimitedItems() throws IOException {
+        BulkIngestResult result = ingest(VALID + "\n{\"temperature\":2}\n" + VALID + "\n");
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        assertEquals(List.of("Item 1: City is missing!"), result.getErrors());
+    }
+
+    @Test
+    void keepsItemsReadBeforeMalformedBody() throws IOException {
+        BulkIngestResult result = ingest("[" + VALID + "," + VALID + ",{\"city\":");
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        assertTrue(result.getErrors().get(0).startsWith("Malformed body: "), result.getErrors().get(0));
+    }
+
+    @Test
+    void countsRejectionsBeyondReportedErrors() throws IOException {
+        System.setProperty("BULK_MAX_ERRORS", "2");
+
+        BulkIngestResult result = ingest("[{},{},{},{},{}]");
+
+        assertEquals(0, result.getAccepted());
+        assertEquals(5, result.getRejected());
+        assertEquals(2, result.getErrors().size());
+        verify(weatherService, never()).savePushed(anyList());
+    }
+
+    @Test
+    void storesItemsInBatches() throws IOException {
+        System.setProperty("BULK_BATCH_SIZE", "2");
+
+        BulkIngestResult result = ingest("[" + VALID + "," + VALID + ",{}," + VALID + "," + VALID + "," + VALID + "]");
+
+        assertEquals(5, result.getAccepted());
+        assertEquals(List.of(2, 2, 1), savedBatches);
+    }
+
+    private BulkIngestResult ingest(String body) throws IOException {
+        BulkIngestService service = new BulkIngestService(
+            weatherService, Jackson2ObjectMapperBuilder.json().build(), meterRegistry
+        );
+        return service.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
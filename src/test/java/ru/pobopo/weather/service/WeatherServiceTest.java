@@ -0,0 +1,322 @@
+package ru.pobopo.weather.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.pobopo.weather.cache.ForecastKeys;
+import ru.pobopo.weather.cache.FreshnessPolicy;
+import ru.pobopo.weather.cache.LocalWeatherCache;
+import ru.pobopo.weather.client.WeatherApiClient;
+import ru.pobopo.weather.exception.ValidationException;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.ForecastResult;
+import ru.pobopo.weather.model.WeatherObject;
+import ru.pobopo.weather.model.weatherapi.Forecast;
+import ru.pobopo.weather.model.weatherapi.ForecastDay;
+import ru.pobopo.weather.model.weatherapi.Location;
+import ru.pobopo.weather.model.weatherapi.TempHour;
+import ru.pobopo.weather.model.weatherapi.WeatherApiResponse;
+import ru.pobopo.weather.store.ForecastStore;
+import ru.pobopo.weather.store.InMemoryForecastStore;
+import ru.pobopo.weather.store.StoredForecast;
+
+class WeatherServiceTest {
+    private static final String CITY = "Moscow";
+    private static final String OTHER_CITY = "Kazan";
+
+    private final LocalDate tomorrow = LocalDate.now().plusDays(1);
+    private final LocalDateTime hour = tomorrow.atTime(12, 0);
+    private MeterRegistry meterRegistry;
+    private WeatherApiClient weatherApiClient;
+    private ForecastStore forecastStore;
+    private LocalWeatherCache localCache;
+    private WeatherService weatherService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        weatherApiClient = mock(WeatherApiClient.class);
+        forecastStore = spy(new InMemoryForecastStore(10_000));
+        localCache = new LocalWeatherCache(meterRegistry);
+        weatherService = new WeatherService(
+            weatherApiClient, localCache, new FreshnessPolicy(), forecastStore, meterRegistry
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        weatherService.shutdown();
+    }
+
+    @Test
+    void fetchSucceedsWhenStoreWriteFails() throws Exception {
+        respondWithForecast(CITY);
+        doThrow(new IllegalStateException("store is down")).when(forecastStore).saveAll(anyList(), any(int[].class));
+
+        WeatherObject weatherObject = weatherService.getForecast(CITY, hour);
+
+        assertEquals(new WeatherObject(CITY, 12f, "celsius", hour), weatherObject);
+        verify(forecastStore, timeout(1000)).saveAll(anyList(), any(int[].class));
+    }
+
+    @Test
+    void fetchDoesNotWaitForStoreWrite() throws Exception {
+        respondWithForecast(CITY);
+        CountDownLatch storeStalled = new CountDownLatch(1);
+        doAnswer(invocation -> storeStalled.await(10, TimeUnit.SECONDS))
+            .when(forecastStore).saveAll(anyList(), any(int[].class));
+
+        try {
+            assertEquals(hour, weatherService.getForecast(CITY, hour).getDate());
+            // the fetched hours are served from the local cache while the store write is pending
+            assertEquals(hour.plusHours(1), weatherService.findForecast(CITY, hour.plusHours(1)).getDate());
+        } finally {
+            storeStalled.countDown();
+        }
+    }
+
+    @Test
+    void resolvesBatchFromCachesAndOneFetchPerCity() throws Exception {
+        respondWithForecast(OTHER_CITY);
+        localCache.put(ForecastKeys.hourKey(CITY, hour), new WeatherObject(CITY, -1f, "celsius", hour));
+        forecastStore.save(new WeatherObject(CITY, -2f, "celsius", hour.plusHours(1)), 3600);
+
+        List<ForecastResult> results = weatherService.getForecasts(List.of(
+            new ForecastRequest(CITY, hour),
+            new ForecastRequest(CITY, hour.plusHours(1)),
+            new ForecastRequest(OTHER_CITY, hour.plusHours(2)),
+            new ForecastRequest(OTHER_CITY, hour.plusHours(3)),
+            new ForecastRequest(" ", hour)
+        ));
+
+        assertEquals(5, results.size());
+        assertEquals(-1f, results.get(0).getForecast().getTemperature());
+        assertEquals(-2f, results.get(1).getForecast().getTemperature());
+        assertEquals(new WeatherObject(OTHER_CITY, 14f, "celsius", hour.plusHours(2)), results.get(2).getForecast());
+        assertEquals(new WeatherObject(OTHER_CITY, 15f, "celsius", hour.plusHours(3)), results.get(3).getForecast());
+        assertNull(results.get(4).getForecast());
+        assertEquals("City and date are required!", results.get(4).getError());
+        verify(weatherApiClient, times(1)).get(eq("/forecast.json"), anyMap());
+    }
+
+    @Test
+    void failsOnlyRequestsOfFailedCity() throws Exception {
+        respondWithForecast(OTHER_CITY);
+        when(weatherApiClient.get(eq("/forecast.json"), argThat(params -> CITY.equals(params.get("q")))))
+            .thenReturn(CompletableFuture.failedFuture(new IOException("Weather api is down")));
+
+        List<ForecastResult> results = weatherService.getForecasts(List.of(
+            new ForecastRequest(CITY, hour),
+            new ForecastRequest(OTHER_CITY, hour)
+        ));
+
+        assertNull(results.get(0).getForecast());
+        assertEquals("Weather api is down", results.get(0).getError());
+        assertEquals(12f, results.get(1).getForecast().getTemperature());
+    }
+
+    @Test
+    void failsHoursMissingFromUpstreamResponse() throws Exception {
+        respondWithForecast(CITY);
+        LocalDateTime farAhead = hour.plusDays(5);
+
+        List<ForecastResult> results = weatherService.getForecasts(List.of(
+            new ForecastRequest(CITY, hour),
+            new ForecastRequest(CITY, farAhead)
+        ));
+
+        assertEquals(12f, results.get(0).getForecast().getTemperature());
+        assertEquals("No forecast available for " + farAhead, results.get(1).getError());
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() {
+        assertThrows(ValidationException.class, () -> weatherService.getForecasts(null));
+        assertThrows(ValidationException.class, () -> weatherService.getForecasts(List.of()));
+        List<ForecastRequest> oversized = Collections.nCopies(1001, new ForecastRequest(CITY, hour));
+        assertThrows(ValidationException.class, () -> weatherService.getForecasts(oversized));
+    }
+
+    @Test
+    void writesCachedLeadingHoursAndFetchesTheRest() throws Exception {
+        respondWithForecast(CITY);
+        localCache.put(ForecastKeys.hourKey(CITY, hour), new WeatherObject(CITY, -1f, "celsius", hour));
+        forecastStore.save(new WeatherObject(CITY, -2f, "celsius", hour.plusHours(1)), 3600);
+        LocalDateTime afterMiss = hour.plusHours(3);
+        localCache.put(ForecastKeys.hourKey(CITY, afterMiss), new WeatherObject(CITY, -4f, "celsius", afterMiss));
+
+        List<WeatherObject> range = new ArrayList<>();
+        weatherService.getRange(CITY, hour, hour.plusHours(4), range::add);
+
+        assertEquals(List.of(-1f, -2f, 14f, -4f), temperatures(range));
+        verify(weatherApiClient, times(1)).get(eq("/forecast.json"), anyMap());
+    }
+
+    @Test
+    void servesCachedRangeWithoutUpstreamCall() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            LocalDateTime cached = hour.plusHours(i);
+            localCache.put(ForecastKeys.hourKey(CITY, cached), new WeatherObject(CITY, i, "celsius", cached));
+        }
+
+        List<WeatherObject> range = new ArrayList<>();
+        // the hour the range ends in is included
+        weatherService.getRange(CITY, hour.plusMinutes(10), hour.plusHours(2).plusMinutes(30), range::add);
+
+        assertEquals(List.of(0f, 1f, 2f), temperatures(range));
+        verify(weatherApiClient, times(0)).get(eq("/forecast.json"), anyMap());
+    }
+
+    @Test
+    void failsRangeWhenUpstreamFails() {
+        when(weatherApiClient.get(eq("/forecast.json"), anyMap()))
+            .thenReturn(CompletableFuture.failedFuture(new IOException("Weather api is down")));
+
+        IOException e = assertThrows(
+            IOException.class, () -> weatherService.getRange(CITY, hour, hour.plusHours(2), weatherObject -> { })
+        );
+        assertEquals("Weather api is down", e.getMessage());
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        assertThrows(ValidationException.class, () -> weatherService.validateRange(" ", hour, hour.plusHours(1)));
+        assertThrows(ValidationException.class, () -> weatherService.validateRange(CITY, null, hour));
+        assertThrows(ValidationException.class, () -> weatherService.validateRange(CITY, hour, hour));
+        assertThrows(ValidationException.class, () -> weatherService.validateRange(CITY, hour, hour.plusDays(15)));
+        assertDoesNotThrow(() -> weatherService.validateRange(CITY, hour, hour.plusDays(14)));
+    }
+
+    @Test
+    void promotesFreshStoreHitToLocalCache() throws Exception {
+        WeatherObject stored = new WeatherObject(CITY, -2f, "celsius", hour);
+        forecastStore.save(stored, 3600);
+
+        assertEquals(stored, weatherService.findForecast(CITY, hour));
+
+        assertEquals(stored, localCache.get(ForecastKeys.hourKey(CITY, hour)));
+        assertEquals(0, staleServed());
+        verify(weatherApiClient, after(200).never()).get(eq("/forecast.json"), anyMap());
+    }
+
+    @Test
+    void servesStaleStoreHitAndRefreshesIt() throws Exception {
+        respondWithForecast(CITY);
+        WeatherObject stored = new WeatherObject(CITY, -2f, "celsius", hour);
+        forecastStore.save(stored, 300);
+
+        assertEquals(stored, weatherService.findForecast(CITY, hour));
+
+        assertEquals(1, staleServed());
+        verify(forecastStore, timeout(1000)).saveAll(anyList(), any(int[].class));
+        assertEquals(12f, weatherService.findForecast(CITY, hour).getTemperature());
+    }
+
+    @Test
+    void doesNotRefreshStalePastHours() throws Exception {
+        LocalDateTime pastHour = LocalDateTime.now().minusDays(1).withMinute(0);
+        WeatherObject stored = new WeatherObject(CITY, -2f, "celsius", pastHour);
+        forecastStore.save(stored, 300);
+
+        assertEquals(stored, weatherService.findForecast(CITY, pastHour));
+
+        assertEquals(1, staleServed());
+        verify(weatherApiClient, after(200).never()).get(eq("/forecast.json"), anyMap());
+    }
+
+    @Test
+    void storesUnexpiringHitAgainWithTtl() throws Exception {
+        respondWithForecast(CITY);
+        WeatherObject stored = new WeatherObject(CITY, -2f, "celsius", hour);
+        doReturn(new StoredForecast(stored, -1)).when(forecastStore).get(CITY, hour);
+
+        assertEquals(stored, weatherService.findForecast(CITY, hour));
+
+        verify(forecastStore).save(eq(stored), intThat(ttl -> ttl > 0));
+        assertEquals(1, staleServed());
+        verify(weatherApiClient, timeout(1000)).get(eq("/forecast.json"), anyMap());
+    }
+
+    @Test
+    void missesUnexpiringHitOfAnotherHour() throws Exception {
+        // entries under the old 12-hour keys may hold another hour of the same half of the day
+        WeatherObject stored = new WeatherObject(CITY, -2f, "celsius", hour.minusHours(5));
+        doReturn(new StoredForecast(stored, -1)).when(forecastStore).get(CITY, hour);
+
+        assertNull(weatherService.findForecast(CITY, hour));
+
+        verify(forecastStore, never()).save(any(), anyInt());
+        assertEquals(0, staleServed());
+    }
+
+    private double staleServed() {
+        return meterRegistry.counter("weather.forecast.stale_served").count();
+    }
+
+    private void respondWithForecast(String city) {
+        when(weatherApiClient.get(eq("/forecast.json"), argThat(params -> city.equals(params.get("q")))))
+            .thenReturn(CompletableFuture.completedFuture(forecastResponse(city, tomorrow)));
+    }
+
+    private static List<Float> temperatures(List<WeatherObject> weatherObjects) {
+        List<Float> temperatures = new ArrayList<>(weatherObjects.size());
+        for (WeatherObject weatherObject : weatherObjects) {
+            temperatures.add(weatherObject.getTemperature());
+        }
+        return temperatures;
+    }
+
+    /**
+     * Hourly forecast of the days where the temperature equals the hour of day.
+     */
+    static WeatherApiResponse forecastResponse(String city, LocalDate... days) {
+        List<ForecastDay> forecastDays = new ArrayList<>();
+        for (LocalDate day : days) {
+            List<TempHour> hours = new ArrayList<>();
+            for (int i = 0; i < 24; i++) {
+                TempHour tempHour = new TempHour();
+                tempHour.setTime(day.atTime(i, 0));
+                tempHour.setTemp_c(i);
+                hours.add(tempHour);
+            }
+            forecastDays.add(new ForecastDay(day, null, hours));
+        }
+        Forecast forecast = new Forecast();
+        forecast.setForecastday(forecastDays);
+        return new WeatherApiResponse(new Location(city, null, null), null, forecast);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.pobopo.weather.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class NameInternerTest {
+    @Test
+    void assignsDenseIds() {
+        NameInterner interner = new NameInterner();
+
+        assertEquals(0, interner.intern("Moscow"));
+        assertEquals(1, interner.intern("Kazan"));
+        assertEquals(0, interner.intern("Moscow"));
+        assertEquals(1, interner.find("Kazan"));
+        assertEquals(-1, interner.find("Samara"));
+        assertEquals("Kazan", interner.name(1));
+        assertEquals(2, interner.size());
+    }
+
+    @Test
+    void reusesReleasedIds() {
+        NameInterner interner = new NameInterner();
+        interner.intern("Moscow");
+        interner.intern("Kazan");
+
+        interner.release(0);
+        assertEquals(-1, interner.find("Moscow"));
+        assertNull(interner.name(0));
+        assertEquals(0, interner.intern("Samara"));
+        assertEquals(2, interner.intern("Moscow"));
+
+        // releasing twice does not hand the id out twice
+        interner.release(1);
+        interner.release(1);
+        assertEquals(1, interner.intern("Omsk"));
+        assertEquals(3, interner.intern("Kazan"));
+    }
+}
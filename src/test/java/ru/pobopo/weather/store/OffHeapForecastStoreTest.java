@@ -0,0 +1,135 @@
+package ru.pobopo.weather.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import ru.pobopo.weather.model.ForecastRequest;
+import ru.pobopo.weather.model.WeatherObject;
+
+class OffHeapForecastStoreTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 3, 10, 14, 0);
+
+    @Test
+    void roundTripsForecast() {
+        OffHeapForecastStore store = new OffHeapForecastStore(64);
+        store.save(new WeatherObject("Moscow", -4.5f, "celsius", HOUR.withMinute(15)), 3600);
+
+        StoredForecast stored = store.get("Moscow", HOUR.withMinute(40));
+        assertNotNull(stored);
+        // any minute of the hour finds the entry, the stored minute is kept
+        assertEquals(new WeatherObject("Moscow", -4.5f, "celsius", HOUR.withMinute(15)), stored.getForecast());
+        assertTrue(stored.getTtlSeconds() > 3590 && stored.getTtlSeconds() <= 3600);
+    }
+
+    @Test
+    void roundTripsNullUnit() {
+        OffHeapForecastStore store = new OffHeapForecastStore(64);
+        store.save(new WeatherObject("Moscow", 1f, null, HOUR), 3600);
+
+        assertNull(store.get("Moscow", HOUR).getForecast().getUnit());
+    }
+
+    @Test
+    void keepsEntriesWithoutExpiry() {
+        OffHeapForecastStore store = new OffHeapForecastStore(64);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 0);
+
+        assertEquals(-1, store.get("Moscow", HOUR).getTtlSeconds());
+    }
+
+    @Test
+    void missesUnknownCityAndHour() {
+        OffHeapForecastStore store = new OffHeapForecastStore(64);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 3600);
+
+        assertNull(store.get("Kazan", HOUR));
+        assertNull(store.get("Moscow", HOUR.plusHours(1)));
+        assertNull(store.get("Moscow", HOUR.minusHours(1)));
+    }
+
+    @Test
+    void overwritesSameHour() {
+        OffHeapForecastStore store = new OffHeapForecastStore(64);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 3600);
+        store.save(new WeatherObject("Moscow", 2f, "fahrenheit", HOUR.withMinute(5)), 7200);
+
+        StoredForecast stored = store.get("Moscow", HOUR);
+        assertEquals(new WeatherObject("Moscow", 2f, "fahrenheit", HOUR.withMinute(5)), stored.getForecast());
+        assertTrue(stored.getTtlSeconds() > 3600);
+    }
+
+    @Test
+    void probesPastCollisionsInFullTable() {
+        OffHeapForecastStore store = new OffHeapForecastStore(8);
+        for (int i = 0; i < 8; i++) {
+            store.save(new WeatherObject("Moscow", i, "celsius", HOUR.plusHours(i)), 3600);
+        }
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, store.get("Moscow", HOUR.plusHours(i)).getForecast().getTemperature());
+        }
+    }
+
+    @Test
+    void overwritesEntryClosestToExpiryWhenFull() {
+        OffHeapForecastStore store = new OffHeapForecastStore(4);
+        store.save(new WeatherObject("Kazan", 1f, "celsius", HOUR), 100);
+        for (int i = 1; i < 4; i++) {
+            store.save(new WeatherObject("Moscow", i, "celsius", HOUR.plusHours(i)), 1000 * i);
+        }
+
+        store.save(new WeatherObject("Moscow", 9f, "celsius", HOUR.plusHours(9)), 5000);
+
+        assertNull(store.get("Kazan", HOUR));
+        assertEquals(9f, store.get("Moscow", HOUR.plusHours(9)).getForecast().getTemperature());
+        for (int i = 1; i < 4; i++) {
+            assertNotNull(store.get("Moscow", HOUR.plusHours(i)));
+        }
+    }
+
+    @Test
+    void reusesReleasedCityIdWithoutMixingCities() {
+        OffHeapForecastStore store = new OffHeapForecastStore(4);
+        store.save(new WeatherObject("Kazan", 1f, "celsius", HOUR), 100);
+        for (int i = 1; i < 4; i++) {
+            store.save(new WeatherObject("Moscow", i, "celsius", HOUR.plusHours(i)), 1000 * i);
+        }
+        // Kazan's only slot is overwritten, then its id goes to Samara
+        store.save(new WeatherObject("Moscow", 9f, "celsius", HOUR.plusHours(9)), 500);
+        store.save(new WeatherObject("Samara", 5f, "celsius", HOUR), 5000);
+
+        assertNull(store.get("Kazan", HOUR));
+        assertEquals(new WeatherObject("Samara", 5f, "celsius", HOUR), store.get("Samara", HOUR).getForecast());
+    }
+
+    @Test
+    void readsAllInRequestOrder() {
+        OffHeapForecastStore store = new OffHeapForecastStore(64);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 3600);
+        store.save(new WeatherObject("Kazan", 2f, "celsius", HOUR), 3600);
+
+        List<StoredForecast> result = store.getAll(Arrays.asList(
+            new ForecastRequest("Kazan", HOUR),
+            new ForecastRequest("Samara", HOUR),
+            new ForecastRequest("Moscow", HOUR)
+        ));
+        assertEquals(2f, result.get(0).getForecast().getTemperature());
+        assertNull(result.get(1));
+        assertEquals(1f, result.get(2).getForecast().getTemperature());
+    }
+
+    @Test
+    void rejectsInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapForecastStore(0));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapForecastStore(-8));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapForecastStore(100));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapForecastStore(1 << 27));
+    }
+}
@@ -0,0 +1,165 @@
+package ru.pobopo.weather.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import ru.pobopo.weather.model.WeatherObject;
+
+class TimeSeriesForecastStoreTest {
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 3, 10, 14, 0);
+
+    @Test
+    void roundTripsForecastWithHourPrecision() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+        store.save(new WeatherObject("Moscow", -4.5f, "celsius", HOUR.withMinute(15)), 3600);
+
+        StoredForecast stored = store.get("Moscow", HOUR.withMinute(40));
+        assertNotNull(stored);
+        assertEquals(new WeatherObject("Moscow", -4.5f, "celsius", HOUR), stored.getForecast());
+        assertTrue(stored.getTtlSeconds() > 3590 && stored.getTtlSeconds() <= 3600);
+    }
+
+    @Test
+    void roundTripsNullUnit() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+        store.save(new WeatherObject("Moscow", 1f, null, HOUR), 3600);
+
+        assertNull(store.get("Moscow", HOUR).getForecast().getUnit());
+    }
+
+    @Test
+    void keepsEntriesWithoutExpiry() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 0);
+
+        assertEquals(-1, store.get("Moscow", HOUR).getTtlSeconds());
+    }
+
+    @Test
+    void missesUnknownCityAndHour() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 3600);
+
+        assertNull(store.get("Kazan", HOUR));
+        assertNull(store.get("Moscow", HOUR.plusHours(1)));
+    }
+
+    @Test
+    void replacesSlotOneWindowLater() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 3600);
+        store.save(new WeatherObject("Moscow", 2f, "celsius", HOUR.plusHours(24)), 3600);
+
+        assertNull(store.get("Moscow", HOUR));
+        assertEquals(2f, store.get("Moscow", HOUR.plusHours(24)).getForecast().getTemperature());
+    }
+
+    @Test
+    void doesNotReturnHourOfAnotherWindow() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 3600);
+
+        assertNull(store.get("Moscow", HOUR.plusDays(1)));
+        assertNull(store.get("Moscow", HOUR.minusDays(30)));
+    }
+
+    @Test
+    void storesDatesBeforeEpoch() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+        LocalDateTime date = LocalDateTime.of(1969, 12, 31, 23, 0);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", date), 3600);
+
+        assertEquals(date, store.get("Moscow", date).getForecast().getDate());
+        assertNull(store.get("Moscow", date.plusHours(24)));
+    }
+
+    @Test
+    void readsRangeLimitedToWindow() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+        for (int i = 0; i < 24; i++) {
+            store.save(new WeatherObject("Moscow", i, "celsius", HOUR.plusHours(i)), 3600);
+        }
+
+        List<StoredForecast> range = store.getRange("Moscow", HOUR.minusHours(1), HOUR.plusHours(26));
+        assertEquals(27, range.size());
+        assertNull(range.get(0));
+        for (int i = 1; i < 24; i++) {
+            assertEquals(i - 1, range.get(i).getForecast().getTemperature());
+            assertEquals(HOUR.plusHours(i - 1), range.get(i).getForecast().getDate());
+        }
+        // hours past the window are never read, they would alias earlier slots
+        for (int i = 24; i < 27; i++) {
+            assertNull(range.get(i));
+        }
+    }
+
+    @Test
+    void readsRangeOfUnknownCity() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 10);
+
+        List<StoredForecast> range = store.getRange("Moscow", HOUR, HOUR.plusHours(3));
+        assertEquals(3, range.size());
+        range.forEach(stored -> assertNull(stored));
+    }
+
+    @Test
+    void evictsCityWhenFull() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 2);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 3600);
+        store.save(new WeatherObject("Kazan", 2f, "celsius", HOUR), 3600);
+        store.save(new WeatherObject("Samara", 3f, "celsius", HOUR), 3600);
+
+        assertEquals(2, store.cityCount());
+        assertNull(store.get("Moscow", HOUR));
+        assertEquals(new WeatherObject("Kazan", 2f, "celsius", HOUR), store.get("Kazan", HOUR).getForecast());
+        // Samara reuses Moscow's id, but not its hours
+        assertEquals(new WeatherObject("Samara", 3f, "celsius", HOUR), store.get("Samara", HOUR).getForecast());
+        assertNull(store.get("Samara", HOUR.plusHours(1)));
+    }
+
+    @Test
+    void sparesCityReadSinceLastSweep() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(24, 3);
+        store.save(new WeatherObject("Moscow", 1f, "celsius", HOUR), 3600);
+        store.save(new WeatherObject("Kazan", 2f, "celsius", HOUR), 3600);
+        store.save(new WeatherObject("Samara", 3f, "celsius", HOUR), 3600);
+        // the sweep unmarks every city and evicts Moscow
+        store.save(new WeatherObject("Omsk", 4f, "celsius", HOUR), 3600);
+        store.get("Kazan", HOUR);
+
+        store.save(new WeatherObject("Tver", 5f, "celsius", HOUR), 3600);
+
+        assertEquals(3, store.cityCount());
+        assertNull(store.get("Moscow", HOUR));
+        assertNull(store.get("Samara", HOUR));
+        assertNotNull(store.get("Kazan", HOUR));
+        assertNotNull(store.get("Omsk", HOUR));
+        assertNotNull(store.get("Tver", HOUR));
+    }
+
+    @Test
+    void skipsUnitsPastTheLimit() {
+        TimeSeriesForecastStore store = new TimeSeriesForecastStore(256, 10);
+        for (int i = 0; i < Byte.MAX_VALUE - 1; i++) {
+            store.save(new WeatherObject("Moscow", i, "unit" + i, HOUR.plusHours(i)), 3600);
+        }
+        store.save(new WeatherObject("Moscow", 1f, "kelvin", HOUR.plusHours(200)), 3600);
+        store.save(new WeatherObject("Moscow", 2f, "unit0", HOUR.plusHours(201)), 3600);
+
+        assertEquals("unit125", store.get("Moscow", HOUR.plusHours(125)).getForecast().getUnit());
+        assertNull(store.get("Moscow", HOUR.plusHours(200)));
+        assertEquals("unit0", store.get("Moscow", HOUR.plusHours(201)).getForecast().getUnit());
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeSeriesForecastStore(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new TimeSeriesForecastStore(24, 0));
+    }
+}
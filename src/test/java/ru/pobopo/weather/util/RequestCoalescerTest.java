@@ -0,0 +1,120 @@
+package ru.pobopo.weather.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class RequestCoalescerTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer<String> coalescer =
+        new RequestCoalescer<>(meterRegistry, "test", Duration.ofSeconds(10));
+    private final AtomicInteger calls = new AtomicInteger();
+    private CompletableFuture<String> upstream = new CompletableFuture<>();
+
+    @Test
+    void sharesInFlightCall() throws Exception {
+        CompletableFuture<String> first = coalescer.execute("moscow", call());
+        CompletableFuture<String> second = coalescer.execute("moscow", call());
+
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+        upstream.complete("forecast");
+        assertEquals("forecast", second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.counter("weather.coalescer.calls", "name", "test").count());
+        assertEquals(1, meterRegistry.counter("weather.coalescer.coalesced", "name", "test").count());
+    }
+
+    @Test
+    void doesNotShareAcrossKeys() {
+        CompletableFuture<String> moscow = coalescer.execute("moscow", call());
+        CompletableFuture<String> kazan = coalescer.execute("kazan", call());
+
+        assertNotSame(moscow, kazan);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void startsNewCallAfterCompletion() throws Exception {
+        CompletableFuture<String> first = coalescer.execute("moscow", call());
+        upstream.complete("old");
+        assertEquals("old", first.get(1, TimeUnit.SECONDS));
+        assertEquals(0, inFlight(), "completed call is still registered");
+
+        upstream = new CompletableFuture<>();
+        CompletableFuture<String> second = coalescer.execute("moscow", call());
+
+        assertNotSame(first, second);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failsWaitersAndStartsNewCallAfterFailure() {
+        CompletableFuture<String> first = coalescer.execute("moscow", call());
+        CompletableFuture<String> second = coalescer.execute("moscow", call());
+        upstream.completeExceptionally(new IOException("upstream is down"));
+
+        for (CompletableFuture<String> future : new CompletableFuture[] {first, second}) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+        }
+        upstream = new CompletableFuture<>();
+        coalescer.execute("moscow", call());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failsWhenCallCannotStart() {
+        CompletableFuture<String> future = coalescer.execute("moscow", () -> {
+            throw new IllegalStateException("executor is shut down");
+        });
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void timesOutAndDropsStalledCall() throws InterruptedException {
+        RequestCoalescer<String> coalescer = new RequestCoalescer<>(meterRegistry, "short", Duration.ofMillis(50));
+        CompletableFuture<String> stalled = coalescer.execute("moscow", call());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> stalled.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        // waiters may wake up before the call is dropped, both happen on the timeout thread
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inFlight("short") > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertNotSame(stalled, coalescer.execute("moscow", call()));
+        assertEquals(2, calls.get());
+    }
+
+    private Supplier<CompletableFuture<String>> call() {
+        return () -> {
+            calls.incrementAndGet();
+            return upstream;
+        };
+    }
+
+    private double inFlight() {
+        return inFlight("test");
+    }
+
+    private double inFlight(String name) {
+        return meterRegistry.get("weather.coalescer.in_flight").tag("name", name).gauge().value();
+    }
+}